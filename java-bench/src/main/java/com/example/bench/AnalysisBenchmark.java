@@ -0,0 +1,81 @@
+package com.example.bench;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.parser.AnalysisEngine;
+import com.example.parser.stages.StagePipeline;
+
+/**
+ * AnalysisEngineによる単一ファイル解析（構文解析 + 全ステージ）のスループットを計測する
+ *
+ * 1回の呼び出しでサンプル全ファイルを解析し，結果は1ファイルあたりで報告する
+ * （ops/s = ファイル/秒）．ファイルあたりの割り当て量は -prof gc の gc.alloc.rate.norm を見る:
+ *
+ *   java -jar java-bench/target/benchmarks.jar AnalysisBenchmark -prof gc
+ *
+ * 永続インデックスは無効にして毎回解析させる．型解決キャッシュはエンジン内で共有されるため，
+ * ウォームアップ後はワークスペース解析の後半と同じく温まった状態を計測することになる．
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalysisBenchmark {
+
+  @Param({"FUSED", "SEQUENTIAL"})
+  public StagePipeline.Mode mode;
+
+  private Path workspace;
+  private AnalysisEngine engine;
+  private String[] files;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    workspace = SampleWorkspace.create();
+    engine = new AnalysisEngine(workspace.toString(), mode, null);
+    files = SampleWorkspace.files(workspace);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    engine.close();
+    SampleWorkspace.delete(workspace);
+  }
+
+  /** 構文解析 + 全ステージ */
+  @Benchmark
+  @OperationsPerInvocation(SampleWorkspace.FILE_COUNT)
+  public void analyzeFile(Blackhole blackhole) throws Exception {
+    for (String file : files) {
+      blackhole.consume(engine.analyzeFile(file));
+    }
+  }
+
+  /** 構文解析のみ（analyzeFileとの差がステージ全体のコスト） */
+  @Benchmark
+  @OperationsPerInvocation(SampleWorkspace.FILE_COUNT)
+  public void parseFile(Blackhole blackhole) throws Exception {
+    for (String file : files) {
+      blackhole.consume(engine.parseFile(file));
+    }
+  }
+}
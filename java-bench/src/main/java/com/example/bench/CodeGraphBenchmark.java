@@ -0,0 +1,85 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.SymbolTable;
+
+/**
+ * CodeGraphへの挿入コストを既存グラフのサイズごとに計測する
+ *
+ * 索引化されていればgraphSizeを増やしてもns/opはほぼ一定になる
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodeGraphBenchmark {
+
+  private static final String[] EDGE_TYPES = {
+    "TypeUse", "MethodCall", "ObjectCreate", "Extends", "Implements"
+  };
+
+  @Param({"1000", "10000", "100000"})
+  public int graphSize;
+
+  private CodeGraph graph;
+  private String[] names;
+  private int cursor;
+  private int created;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    graph = new CodeGraph(new SymbolTable());
+    names = new String[graphSize];
+    for (int i = 0; i < graphSize; i++) {
+      names[i] = "com.example.pkg" + (i % 100) + ".Class" + i;
+    }
+    // 各ノードから数本のエッジを張った状態を初期状態とする
+    for (int i = 0; i < graphSize; i++) {
+      graph.addReferNode(names[i], names[(i * 31 + 7) % graphSize], EDGE_TYPES[i % EDGE_TYPES.length]);
+      graph.addReferNode(names[i], names[(i * 17 + 3) % graphSize], "TypeUse");
+    }
+    cursor = 0;
+    created = 0;
+  }
+
+  /** 既存ノード間の既存エッジを再登録（検索のみ） */
+  @Benchmark
+  public CodeGraph addExistingEdge() {
+    int i = cursor++ % graphSize;
+    graph.addReferNode(names[i], names[(i * 17 + 3) % graphSize], "TypeUse");
+    return graph;
+  }
+
+  /** 既存ノードから新規ノードへのエッジを追加（検索 + 挿入） */
+  @Benchmark
+  public CodeGraph addNewEdge() {
+    int i = cursor++ % graphSize;
+    graph.addReferNode(names[i], "com.example.generated.New" + created++, "MethodCall");
+    return graph;
+  }
+
+  /** 既存ノードの属性更新（ノード検索のみ） */
+  @Benchmark
+  public CodeGraph setNodeType() {
+    int i = cursor++ % graphSize;
+    graph.setNodeType(names[i], "Class");
+    return graph;
+  }
+}
@@ -0,0 +1,90 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * ベンチマーク用の固定サンプルソース（resources/samples）を一時ワークスペースへ展開する
+ *
+ * サンプルは互いに参照し合う小さなパッケージで，継承・ジェネリクス・メソッド呼び出し・
+ * オブジェクト生成・ライブラリ型の参照を一通り含む．内容を変えると過去の計測結果と
+ * 比較できなくなるため，変更する場合はベースラインを取り直すこと．
+ */
+final class SampleWorkspace {
+  static final String PACKAGE_PATH = "com/example/sample";
+
+  static final String[] FILES = {
+    "Entity.java",
+    "Repository.java",
+    "Product.java",
+    "StockItem.java",
+    "Warehouse.java",
+    "InsufficientStockException.java",
+    "InMemoryRepository.java",
+    "InventoryService.java"
+  };
+
+  // @OperationsPerInvocationに渡すファイル数（FILESの長さと一致させる）
+  static final int FILE_COUNT = 8;
+
+  // ファイルごとのINFOログを抑止（設定を保持するためロガーを参照し続ける）
+  private static final Logger ROOT_LOGGER = Logger.getLogger("com.example");
+
+  private SampleWorkspace() {}
+
+  /**
+   * 一時ディレクトリの src/main/java 以下にサンプルを展開し，ワークスペースのルートを返す
+   */
+  static Path create() throws IOException {
+    quietLogging();
+    Path root = Files.createTempDirectory("dependviz-bench");
+    Path packageDir = root.resolve("src/main/java").resolve(PACKAGE_PATH);
+    Files.createDirectories(packageDir);
+    for (String file : FILES) {
+      try (InputStream in =
+          SampleWorkspace.class.getResourceAsStream("/samples/" + PACKAGE_PATH + "/" + file)) {
+        if (in == null) {
+          throw new IOException("Sample source not found: " + file);
+        }
+        Files.copy(in, packageDir.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    return root;
+  }
+
+  /**
+   * エンジンのファイルごとのINFOログを抑止（計測にコンソール出力を含めない）
+   */
+  static void quietLogging() {
+    ROOT_LOGGER.setLevel(Level.WARNING);
+  }
+
+  /**
+   * 展開したサンプルの絶対パス（FILESの順）
+   */
+  static String[] files(Path root) {
+    String[] paths = new String[FILES.length];
+    for (int i = 0; i < FILES.length; i++) {
+      paths[i] = root.resolve("src/main/java").resolve(PACKAGE_PATH).resolve(FILES[i]).toString();
+    }
+    return paths;
+  }
+
+  static void delete(Path root) throws IOException {
+    if (root == null || !Files.exists(root)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.example.bench;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.lsp.CompactGraph;
+import com.example.lsp.DependVizTextDocumentService;
+import com.example.parser.AnalysisEngine;
+import com.example.parser.models.CodeGraph;
+import com.example.parser.stages.StagePipeline;
+import com.google.gson.Gson;
+
+/**
+ * 解析結果をクライアントへ返す形式へ変換するコストを計測する
+ *
+ * サンプルのファイル単位のグラフを事前に解析しておき，1回の呼び出しで全ファイルを変換する
+ * （ops/s = ファイル/秒．割り当て量は -prof gc の gc.alloc.rate.norm）．
+ *
+ *   java -jar java-bench/target/benchmarks.jar SerializationBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+  private CodeGraph[] graphs;
+
+  // lsp4jがレスポンスの書き出しに使うものと同じ設定のGson
+  private Gson gson;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Path workspace = SampleWorkspace.create();
+    try (AnalysisEngine engine =
+        new AnalysisEngine(workspace.toString(), StagePipeline.Mode.FUSED, null)) {
+      String[] files = SampleWorkspace.files(workspace);
+      graphs = new CodeGraph[files.length];
+      for (int i = 0; i < files.length; i++) {
+        graphs[i] = engine.analyzeFile(files[i]);
+      }
+    } finally {
+      SampleWorkspace.delete(workspace);
+    }
+    gson = new MessageJsonHandler(Map.of()).getGson();
+  }
+
+  /** getFileDependencyGraphのJSON文字列（Jackson） */
+  @Benchmark
+  @OperationsPerInvocation(SampleWorkspace.FILE_COUNT)
+  public void json(Blackhole blackhole) throws Exception {
+    for (CodeGraph graph : graphs) {
+      blackhole.consume(DependVizTextDocumentService.toJson(graph));
+    }
+  }
+
+  /** getCompactFileDependencyGraphのコンパクト形式への変換のみ */
+  @Benchmark
+  @OperationsPerInvocation(SampleWorkspace.FILE_COUNT)
+  public void compact(Blackhole blackhole) {
+    for (CodeGraph graph : graphs) {
+      blackhole.consume(CompactGraph.of(graph));
+    }
+  }
+
+  /** コンパクト形式への変換 + lsp4jによるレスポンスの書き出し */
+  @Benchmark
+  @OperationsPerInvocation(SampleWorkspace.FILE_COUNT)
+  public void compactJson(Blackhole blackhole) {
+    for (CodeGraph graph : graphs) {
+      blackhole.consume(gson.toJson(CompactGraph.of(graph)));
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.example.bench;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parser.AnalysisEngine;
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.SymbolTable;
+import com.example.parser.resolution.ResolutionCache;
+import com.example.parser.stages.BaseStage;
+import com.example.parser.stages.ClassTypeStage;
+import com.example.parser.stages.ExtendsStage;
+import com.example.parser.stages.FilePathStage;
+import com.example.parser.stages.ImplementsStage;
+import com.example.parser.stages.LinesOfCodeStage;
+import com.example.parser.stages.MethodCallStage;
+import com.example.parser.stages.ObjectCreationStage;
+import com.example.parser.stages.StagePipeline;
+import com.example.parser.stages.TypeUseStage;
+import com.github.javaparser.ast.CompilationUnit;
+
+/**
+ * 各ステージのprocessを単独で計測する
+ *
+ * サンプルは事前に構文解析しておき，1回の呼び出しで全ファイルにステージを適用する
+ * （ops/s = ファイル/秒．割り当て量は -prof gc の gc.alloc.rate.norm）．
+ *
+ *   java -jar java-bench/target/benchmarks.jar StageBenchmark -p stage=TypeUse -prof gc
+ *
+ * 型解決キャッシュは無効にして毎回シンボル解決を行わせる（キャッシュ込みの値は
+ * AnalysisBenchmarkで見る）．
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StageBenchmark {
+
+  @Param({
+    "TypeUse",
+    "MethodCall",
+    "ObjectCreation",
+    "Extends",
+    "Implements",
+    "ClassType",
+    "LinesOfCode",
+    "FilePath"
+  })
+  public String stage;
+
+  private Path workspace;
+  private AnalysisEngine engine;
+  private CompilationUnit[] units;
+  private BaseStage target;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    workspace = SampleWorkspace.create();
+    engine = new AnalysisEngine(workspace.toString(), StagePipeline.Mode.FUSED, null);
+    String[] files = SampleWorkspace.files(workspace);
+    units = new CompilationUnit[files.length];
+    for (int i = 0; i < files.length; i++) {
+      units[i] = engine.parseFile(files[i]);
+    }
+    target = createStage(stage, ResolutionCache.disabled());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    engine.close();
+    SampleWorkspace.delete(workspace);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SampleWorkspace.FILE_COUNT)
+  public CodeGraph process() {
+    CodeGraph graph = new CodeGraph(new SymbolTable());
+    for (CompilationUnit unit : units) {
+      target.process(unit, graph);
+    }
+    return graph;
+  }
+
+  private static BaseStage createStage(String name, ResolutionCache resolutionCache) {
+    return switch (name) {
+      case "TypeUse" -> new TypeUseStage(resolutionCache);
+      case "MethodCall" -> new MethodCallStage();
+      case "ObjectCreation" -> new ObjectCreationStage(resolutionCache);
+      case "Extends" -> new ExtendsStage(resolutionCache);
+      case "Implements" -> new ImplementsStage(resolutionCache);
+      case "ClassType" -> new ClassTypeStage();
+      case "LinesOfCode" -> new LinesOfCodeStage();
+      case "FilePath" -> new FilePathStage();
+      default -> throw new IllegalArgumentException("Unknown stage: " + name);
+    };
+  }
+}
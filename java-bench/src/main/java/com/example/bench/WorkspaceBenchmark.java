@@ -0,0 +1,76 @@
+package com.example.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parser.AnalysisEngine;
+import com.example.parser.WorkspaceAnalysis;
+import com.example.parser.stages.StagePipeline;
+
+/**
+ * 合成ワークスペース全体の解析時間を規模ごとに計測する
+ *
+ * WorkspaceGeneratorの既定の設定でclasses個のクラス（100クラスあたり10パッケージ）を生成し，
+ * 毎回新しいエンジン（インデックスなし，キャッシュは空）でanalyzeWorkspaceを実行する．
+ * 1回が数秒以上かかるためSingleShotTimeで計測する．
+ *
+ *   java -jar java-bench/target/benchmarks.jar WorkspaceBenchmark -p classes=100000
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class WorkspaceBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int classes;
+
+  private Path workspace;
+  private AnalysisEngine engine;
+
+  @Setup(Level.Trial)
+  public void generate() throws Exception {
+    SampleWorkspace.quietLogging();
+    workspace = Files.createTempDirectory("dependviz-synthetic");
+    WorkspaceGenerator.Config config =
+        WorkspaceGenerator.Config.DEFAULT.withClasses(classes, Math.max(1, classes / 10));
+    new WorkspaceGenerator(config).generate(workspace);
+  }
+
+  @Setup(Level.Invocation)
+  public void createEngine() {
+    engine = new AnalysisEngine(workspace.toString(), StagePipeline.Mode.FUSED, null);
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeEngine() {
+    engine.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void delete() throws Exception {
+    SampleWorkspace.delete(workspace);
+  }
+
+  @Benchmark
+  public WorkspaceAnalysis analyzeWorkspace() throws Exception {
+    return engine.analyzeWorkspace();
+  }
+}
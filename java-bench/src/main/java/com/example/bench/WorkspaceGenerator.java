@@ -0,0 +1,273 @@
+package com.example.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+/**
+ * 規模を指定できる決定的な合成ワークスペースを生成する
+ *
+ * 同じ設定（シードを含む）からは常に同じソースが生成されるため，社外に出せない
+ * リポジトリの代わりに再現ケースやスケールの計測に使える．
+ *
+ * クラスには0から番号を振り，連続した番号のクラスを同じパッケージに置く．
+ * 依存（メソッド呼び出し・オブジェクト生成）は原則として番号の小さいクラスへ向け，
+ * cycleDensityの割合だけ番号の大きいクラスへ向けることで循環を作る（0なら非循環）．
+ * 継承はパッケージ内で番号の連続するクラスを最大inheritanceDepth段の鎖にし，
+ * 鎖の根はパッケージのインタフェースを実装する．
+ *
+ *   java -cp java-bench/target/benchmarks.jar com.example.bench.WorkspaceGenerator \
+ *       --classes 10000 --packages 100 /tmp/synthetic
+ */
+public final class WorkspaceGenerator {
+
+  // 生成するパッケージの親（既存のディレクトリを消す範囲もここに限る）
+  static final String BASE_PACKAGE = "synthetic";
+
+  /**
+   * 生成の設定
+   *
+   * @param packages パッケージ数
+   * @param classes クラス数（パッケージ数以上）
+   * @param inheritanceDepth 継承の鎖の最大段数（0なら継承しない）
+   * @param methodCalls クラスあたりのメソッド呼び出し先の数
+   * @param objectCreations クラスあたりのオブジェクト生成先の数
+   * @param cycleDensity 依存のうち番号の大きいクラスへ向ける割合（0から1）
+   * @param seed 乱数のシード
+   */
+  public record Config(
+      int packages,
+      int classes,
+      int inheritanceDepth,
+      int methodCalls,
+      int objectCreations,
+      double cycleDensity,
+      long seed) {
+
+    public static final Config DEFAULT = new Config(10, 100, 2, 4, 2, 0.05, 42);
+
+    public Config {
+      if (packages < 1 || classes < packages) {
+        throw new IllegalArgumentException(
+            "classes must be >= packages >= 1: " + classes + ", " + packages);
+      }
+      if (inheritanceDepth < 0 || methodCalls < 0 || objectCreations < 0) {
+        throw new IllegalArgumentException("depth and fan-out must not be negative");
+      }
+      if (cycleDensity < 0 || cycleDensity > 1) {
+        throw new IllegalArgumentException("cycleDensity must be in [0, 1]: " + cycleDensity);
+      }
+    }
+
+    public Config withClasses(int classes, int packages) {
+      return new Config(
+          packages, classes, inheritanceDepth, methodCalls, objectCreations, cycleDensity, seed);
+    }
+  }
+
+  private final Config config;
+  private final int packageDigits;
+  private final int classDigits;
+
+  public WorkspaceGenerator(Config config) {
+    this.config = config;
+    this.packageDigits = Integer.toString(config.packages() - 1).length();
+    this.classDigits = Integer.toString(config.classes() - 1).length();
+  }
+
+  /**
+   * workspaceRoot/src/main/java/synthetic 以下を作り直し，生成したファイル数を返す
+   */
+  public int generate(Path workspaceRoot) throws IOException {
+    Path sourceRoot = workspaceRoot.resolve("src/main/java");
+    SampleWorkspace.delete(sourceRoot.resolve(BASE_PACKAGE));
+
+    SplittableRandom random = new SplittableRandom(config.seed());
+    int files = 0;
+    for (int p = 0; p < config.packages(); p++) {
+      Path packageDir = sourceRoot.resolve(BASE_PACKAGE).resolve(packageName(p));
+      Files.createDirectories(packageDir);
+      writeFile(packageDir.resolve(interfaceName(p) + ".java"), interfaceSource(p));
+      files++;
+    }
+    for (int c = 0; c < config.classes(); c++) {
+      Path packageDir = sourceRoot.resolve(BASE_PACKAGE).resolve(packageName(packageOf(c)));
+      writeFile(packageDir.resolve(className(c) + ".java"), classSource(c, random));
+      files++;
+    }
+    return files;
+  }
+
+  private String interfaceSource(int p) {
+    return "package " + qualifiedPackage(p) + ";\n"
+        + "\n"
+        + "public interface " + interfaceName(p) + " {\n"
+        + "  int value();\n"
+        + "}\n";
+  }
+
+  private String classSource(int c, SplittableRandom random) {
+    int p = packageOf(c);
+    // 鎖の先頭でなく，直前のクラスが同じパッケージにあれば継承する
+    boolean extendsPrevious =
+        config.inheritanceDepth() > 0
+            && c % (config.inheritanceDepth() + 1) != 0
+            && c > 0
+            && packageOf(c - 1) == p;
+
+    int[] calls = pickTargets(c, config.methodCalls(), random);
+    int[] creations = pickTargets(c, config.objectCreations(), random);
+
+    StringBuilder source = new StringBuilder(512);
+    source.append("package ").append(qualifiedPackage(p)).append(";\n\n");
+    // 他パッケージの参照先をimport
+    Set<String> imports = new TreeSet<>();
+    for (int[] targets : new int[][] {calls, creations}) {
+      for (int target : targets) {
+        if (packageOf(target) != p) {
+          imports.add(qualifiedName(target));
+        }
+      }
+    }
+    for (String name : imports) {
+      source.append("import ").append(name).append(";\n");
+    }
+    if (!imports.isEmpty()) {
+      source.append('\n');
+    }
+
+    source.append("public class ").append(className(c));
+    if (extendsPrevious) {
+      source.append(" extends ").append(className(c - 1));
+    } else {
+      source.append(" implements ").append(interfaceName(p));
+    }
+    source.append(" {\n");
+    source.append("  private int state = ").append(c).append(";\n\n");
+
+    source.append("  @Override\n");
+    source.append("  public int value() {\n");
+    source.append("    return state;\n");
+    source.append("  }\n\n");
+
+    source.append("  public static int compute(int input) {\n");
+    source.append("    int result = input;\n");
+    for (int target : calls) {
+      source.append("    result += ").append(className(target)).append(".compute(result);\n");
+    }
+    source.append("    return result;\n");
+    source.append("  }\n\n");
+
+    source.append("  public int build() {\n");
+    source.append("    int total = value();\n");
+    for (int i = 0; i < creations.length; i++) {
+      String type = className(creations[i]);
+      source.append("    ").append(type).append(" created").append(i)
+          .append(" = new ").append(type).append("();\n");
+      source.append("    total += created").append(i).append(".value();\n");
+    }
+    source.append("    return total;\n");
+    source.append("  }\n");
+    source.append("}\n");
+    return source.toString();
+  }
+
+  // 依存先を選ぶ（自分自身は選ばない．番号の小さいクラスがなければ大きい側から）
+  private int[] pickTargets(int c, int count, SplittableRandom random) {
+    int classes = config.classes();
+    if (classes < 2) {
+      return new int[0];
+    }
+    int[] targets = new int[count];
+    for (int i = 0; i < count; i++) {
+      boolean forward = c == 0 || (c < classes - 1 && random.nextDouble() < config.cycleDensity());
+      targets[i] = forward ? random.nextInt(c + 1, classes) : random.nextInt(0, c);
+    }
+    return targets;
+  }
+
+  private int packageOf(int c) {
+    return (int) ((long) c * config.packages() / config.classes());
+  }
+
+  private String packageName(int p) {
+    return "p" + pad(p, packageDigits);
+  }
+
+  private String qualifiedPackage(int p) {
+    return BASE_PACKAGE + "." + packageName(p);
+  }
+
+  private String interfaceName(int p) {
+    return "Api" + pad(p, packageDigits);
+  }
+
+  private String className(int c) {
+    return "C" + pad(c, classDigits);
+  }
+
+  private String qualifiedName(int c) {
+    return qualifiedPackage(packageOf(c)) + "." + className(c);
+  }
+
+  private static String pad(int value, int digits) {
+    String text = Integer.toString(value);
+    return "0".repeat(Math.max(0, digits - text.length())) + text;
+  }
+
+  private static void writeFile(Path path, String content) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      writer.write(content);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Config defaults = Config.DEFAULT;
+    int packages = defaults.packages();
+    int classes = defaults.classes();
+    int depth = defaults.inheritanceDepth();
+    int calls = defaults.methodCalls();
+    int creations = defaults.objectCreations();
+    double cycles = defaults.cycleDensity();
+    long seed = defaults.seed();
+    String output = null;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--packages" -> packages = Integer.parseInt(args[++i]);
+          case "--classes" -> classes = Integer.parseInt(args[++i]);
+          case "--depth" -> depth = Integer.parseInt(args[++i]);
+          case "--calls" -> calls = Integer.parseInt(args[++i]);
+          case "--creations" -> creations = Integer.parseInt(args[++i]);
+          case "--cycles" -> cycles = Double.parseDouble(args[++i]);
+          case "--seed" -> seed = Long.parseLong(args[++i]);
+          default -> {
+            if (args[i].startsWith("--") || output != null) {
+              throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            output = args[i];
+          }
+        }
+      }
+      if (output == null) {
+        throw new IllegalArgumentException("Output directory is required");
+      }
+      Config config = new Config(packages, classes, depth, calls, creations, cycles, seed);
+      int files = new WorkspaceGenerator(config).generate(Paths.get(output));
+      System.out.println("Generated " + files + " files under " + Paths.get(output, "src/main/java"));
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.err.println(
+          "Usage: WorkspaceGenerator [--packages N] [--classes N] [--depth N] [--calls N]"
+              + " [--creations N] [--cycles RATIO] [--seed N] <outputDir>");
+      System.exit(2);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.sample;
+
+import java.time.Instant;
+import java.util.Objects;
+
+public abstract class Entity<I> {
+  private final I id;
+  private Instant updatedAt;
+
+  protected Entity(I id) {
+    this.id = Objects.requireNonNull(id);
+    this.updatedAt = Instant.now();
+  }
+
+  public I getId() {
+    return id;
+  }
+
+  public Instant getUpdatedAt() {
+    return updatedAt;
+  }
+
+  protected void touch() {
+    updatedAt = Instant.now();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (other == null || getClass() != other.getClass()) {
+      return false;
+    }
+    return id.equals(((Entity<?>) other).id);
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+}
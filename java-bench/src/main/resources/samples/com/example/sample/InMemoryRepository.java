@@ -0,0 +1,39 @@
+package com.example.sample;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+public class InMemoryRepository<I, E extends Entity<I>> implements Repository<I, E> {
+  private final Map<I, E> entities = new ConcurrentHashMap<>();
+
+  @Override
+  public Optional<E> findById(I id) {
+    return Optional.ofNullable(entities.get(id));
+  }
+
+  @Override
+  public List<E> findAll(Predicate<? super E> filter) {
+    List<E> result = new ArrayList<>();
+    for (E entity : entities.values()) {
+      if (filter.test(entity)) {
+        result.add(entity);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public E save(E entity) {
+    entities.put(entity.getId(), entity);
+    return entity;
+  }
+
+  @Override
+  public boolean delete(I id) {
+    return entities.remove(id) != null;
+  }
+}
@@ -0,0 +1,15 @@
+package com.example.sample;
+
+public class InsufficientStockException extends RuntimeException {
+  private final Product product;
+
+  public InsufficientStockException(Product product, int available, int requested) {
+    super(String.format(
+        "%s: requested %d, available %d", product.getName(), requested, available));
+    this.product = product;
+  }
+
+  public Product getProduct() {
+    return product;
+  }
+}
@@ -0,0 +1,102 @@
+package com.example.sample;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class InventoryService {
+  private final Repository<String, Product> products;
+  private final Repository<String, Warehouse> warehouses;
+  private final List<InventoryListener> listeners = new ArrayList<>();
+
+  public InventoryService() {
+    this(new InMemoryRepository<>(), new InMemoryRepository<>());
+  }
+
+  public InventoryService(
+      Repository<String, Product> products, Repository<String, Warehouse> warehouses) {
+    this.products = products;
+    this.warehouses = warehouses;
+  }
+
+  public void addListener(InventoryListener listener) {
+    listeners.add(listener);
+  }
+
+  public Product registerProduct(String id, String name, BigDecimal price) {
+    Product product = products.save(new Product(id, name, price));
+    listeners.forEach(listener -> listener.onProductRegistered(product));
+    return product;
+  }
+
+  public Warehouse openWarehouse(String id, String location) {
+    return warehouses.save(new Warehouse(id, location));
+  }
+
+  public void receive(String warehouseId, String productId, int quantity) {
+    Warehouse warehouse = require(warehouses, warehouseId);
+    Product product = require(products, productId);
+    StockItem item = warehouse.stock(product);
+    item.adjust(quantity);
+    for (InventoryListener listener : listeners) {
+      listener.onStockChanged(item, quantity);
+    }
+  }
+
+  public void ship(String warehouseId, String productId, int quantity) {
+    Warehouse warehouse = require(warehouses, warehouseId);
+    Product product = require(products, productId);
+    StockItem item = warehouse.stock(product);
+    try {
+      item.adjust(-quantity);
+    } catch (InsufficientStockException e) {
+      listeners.forEach(listener -> listener.onShortage(e.getProduct(), quantity));
+      throw e;
+    }
+    listeners.forEach(listener -> listener.onStockChanged(item, -quantity));
+  }
+
+  public Map<String, Integer> totals() {
+    Map<String, Integer> totals = new HashMap<>();
+    for (Warehouse warehouse : warehouses.findAll(w -> true)) {
+      for (StockItem item : warehouse.items()) {
+        totals.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+      }
+    }
+    return totals;
+  }
+
+  public List<Product> cheapest(int limit) {
+    return products.findAll(p -> true).stream()
+        .sorted(Comparator.comparing(Product::getPrice))
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  public BigDecimal stockValue(String warehouseId) {
+    Warehouse warehouse = require(warehouses, warehouseId);
+    BigDecimal value = BigDecimal.ZERO;
+    for (StockItem item : warehouse.items()) {
+      value = value.add(item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+    }
+    return value;
+  }
+
+  private static <E extends Entity<String>> E require(Repository<String, E> repository, String id) {
+    return repository
+        .findById(id)
+        .orElseThrow(() -> new IllegalArgumentException("unknown id: " + id));
+  }
+
+  public interface InventoryListener {
+    void onProductRegistered(Product product);
+
+    void onStockChanged(StockItem item, int delta);
+
+    default void onShortage(Product product, int requested) {}
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.sample;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Product extends Entity<String> implements Comparable<Product> {
+  private final String name;
+  private BigDecimal price;
+  private final List<String> tags = new ArrayList<>();
+
+  public Product(String id, String name, BigDecimal price) {
+    super(id);
+    this.name = name;
+    this.price = price;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public BigDecimal getPrice() {
+    return price;
+  }
+
+  public void changePrice(BigDecimal newPrice) {
+    if (newPrice.signum() < 0) {
+      throw new IllegalArgumentException("negative price: " + newPrice);
+    }
+    price = newPrice;
+    touch();
+  }
+
+  public void addTag(String tag) {
+    if (!tags.contains(tag)) {
+      tags.add(tag);
+      touch();
+    }
+  }
+
+  public List<String> getTags() {
+    return Collections.unmodifiableList(tags);
+  }
+
+  @Override
+  public int compareTo(Product other) {
+    return name.compareTo(other.name);
+  }
+}
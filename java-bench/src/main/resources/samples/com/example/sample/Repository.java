@@ -0,0 +1,15 @@
+package com.example.sample;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+public interface Repository<I, E extends Entity<I>> {
+  Optional<E> findById(I id);
+
+  List<E> findAll(Predicate<? super E> filter);
+
+  E save(E entity);
+
+  boolean delete(I id);
+}
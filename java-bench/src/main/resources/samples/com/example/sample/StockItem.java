@@ -0,0 +1,34 @@
+package com.example.sample;
+
+public class StockItem extends Entity<String> {
+  private final Product product;
+  private final Warehouse warehouse;
+  private int quantity;
+
+  public StockItem(Product product, Warehouse warehouse, int quantity) {
+    super(warehouse.getId() + ":" + product.getId());
+    this.product = product;
+    this.warehouse = warehouse;
+    this.quantity = quantity;
+  }
+
+  public Product getProduct() {
+    return product;
+  }
+
+  public Warehouse getWarehouse() {
+    return warehouse;
+  }
+
+  public int getQuantity() {
+    return quantity;
+  }
+
+  public void adjust(int delta) {
+    if (quantity + delta < 0) {
+      throw new InsufficientStockException(product, quantity, -delta);
+    }
+    quantity += delta;
+    touch();
+  }
+}
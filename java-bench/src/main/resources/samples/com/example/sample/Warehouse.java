@@ -0,0 +1,31 @@
+package com.example.sample;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Warehouse extends Entity<String> {
+  private final String location;
+  private final Map<String, StockItem> items = new LinkedHashMap<>();
+
+  public Warehouse(String id, String location) {
+    super(id);
+    this.location = location;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public StockItem stock(Product product) {
+    return items.computeIfAbsent(product.getId(), key -> new StockItem(product, this, 0));
+  }
+
+  public int quantityOf(Product product) {
+    StockItem item = items.get(product.getId());
+    return item == null ? 0 : item.getQuantity();
+  }
+
+  public Iterable<StockItem> items() {
+    return items.values();
+  }
+}
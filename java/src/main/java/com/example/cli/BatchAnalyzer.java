@@ -0,0 +1,336 @@
+package com.example.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.example.lsp.CompactGraph;
+import com.example.lsp.DependVizTextDocumentService;
+import com.example.parser.AnalysisEngine;
+import com.example.parser.AnalysisListener;
+import com.example.parser.Cancellation;
+import com.example.parser.WorkspaceAnalysis;
+import com.example.parser.metrics.Histogram;
+import com.example.parser.metrics.StageMetrics;
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.GraphEdge;
+import com.example.parser.models.GraphNode;
+import com.example.parser.stages.StagePipeline;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * VS Codeを使わずにワークスペース全体を解析し，マージしたグラフをファイルへ書き出す
+ *
+ * 言語サーバーと同じAnalysisEngine・永続インデックスを使う．既定ではインデックスを
+ * 読み書きせず，解析するワークスペースに何も書き込まない．--indexを指定すると言語サーバーと
+ * 同じワークスペース内のインデックス（.vscode/dependviz/index）を更新するため，CIや夜間バッチで
+ * 事前に解析しておくと，エディタでのワークスペース解析はインデックスから読み込むだけになる．
+ * --index-dirではワークスペース外の任意のディレクトリをインデックスに使う．
+ *
+ *   java -jar java-graph.jar analyze [options] <workspaceRoot>
+ */
+public final class BatchAnalyzer {
+  /** 出力形式 */
+  enum Format {
+    /** getFileDependencyGraphと同じ {nodes, links} 形式 */
+    JSON,
+    /** 言語サーバーのコンパクト転送形式（dependviz-compact/1） */
+    COMPACT,
+    /** Graphviz */
+    DOT
+  }
+
+  static final String USAGE =
+      String.join(
+          "\n",
+          "Usage: java -jar java-graph.jar analyze [options] <workspaceRoot>",
+          "",
+          "Options:",
+          "  -o, --output <file>     Write the graph to <file> (default: standard output)",
+          "  -f, --format <format>   json (default), compact or dot",
+          "  -t, --threads <n>       Worker threads (default: number of cores)",
+          "      --mode <mode>       fused (default) or sequential stage pipeline",
+          "      --index             Read and update the language server's index in the",
+          "                          workspace (writes <workspaceRoot>/.vscode/dependviz/index)",
+          "      --index-dir <dir>   Read and update the analysis index in <dir> instead",
+          "      --no-index          Do not use an analysis index (default)",
+          "      --metrics           Print per-stage timing and allocation to standard error",
+          "  -v, --verbose           Show analysis log messages",
+          "  -h, --help              Show this help");
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private Path workspaceRoot;
+  private Path output;
+  private Format format = Format.JSON;
+  private int threads;
+  private StagePipeline.Mode mode = StagePipeline.Mode.FUSED;
+  private boolean useIndex;
+  // インデックスのディレクトリ（nullの場合はワークスペース内の既定の場所）
+  private Path indexDir;
+  private boolean printMetrics;
+  private boolean verbose;
+
+  private BatchAnalyzer() {}
+
+  /**
+   * コマンドラインを解釈して解析を実行し，終了コードを返す
+   *
+   * 0: 成功（一部ファイルの解析失敗を含む），1: 解析・出力の失敗，2: 引数の誤り
+   */
+  public static int run(String[] args, PrintStream err) {
+    BatchAnalyzer analyzer = new BatchAnalyzer();
+    try {
+      if (!analyzer.parseArguments(args)) {
+        err.println(USAGE);
+        return 0;
+      }
+    } catch (IllegalArgumentException e) {
+      err.println("Error: " + e.getMessage());
+      err.println(USAGE);
+      return 2;
+    }
+    try {
+      analyzer.analyze(err);
+      return 0;
+    } catch (IOException | RuntimeException e) {
+      err.println("Error: " + e);
+      return 1;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      err.println("Error: interrupted");
+      return 1;
+    }
+  }
+
+  public static void main(String[] args) {
+    System.exit(run(args, System.err));
+  }
+
+  // 引数を解釈する（ヘルプの表示を求められた場合はfalse）
+  private boolean parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      switch (arg) {
+        case "-h", "--help" -> {
+          return false;
+        }
+        case "-o", "--output" -> output = Paths.get(valueOf(args, ++i, arg));
+        case "-f", "--format" -> format = parseFormat(valueOf(args, ++i, arg));
+        case "-t", "--threads" -> threads = parseThreads(valueOf(args, ++i, arg));
+        case "--mode" -> mode = parseMode(valueOf(args, ++i, arg));
+        case "--index" -> {
+          useIndex = true;
+          indexDir = null;
+        }
+        case "--index-dir" -> {
+          useIndex = true;
+          indexDir = Paths.get(valueOf(args, ++i, arg)).toAbsolutePath().normalize();
+        }
+        case "--no-index" -> useIndex = false;
+        case "--metrics" -> printMetrics = true;
+        case "-v", "--verbose" -> verbose = true;
+        default -> {
+          if (arg.startsWith("-") || workspaceRoot != null) {
+            throw new IllegalArgumentException("Unexpected argument: " + arg);
+          }
+          workspaceRoot = Paths.get(arg).toAbsolutePath().normalize();
+        }
+      }
+    }
+    if (workspaceRoot == null) {
+      throw new IllegalArgumentException("Workspace root is required");
+    }
+    if (!Files.isDirectory(workspaceRoot)) {
+      throw new IllegalArgumentException("Not a directory: " + workspaceRoot);
+    }
+    return true;
+  }
+
+  private static String valueOf(String[] args, int index, String option) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException("Missing value for " + option);
+    }
+    return args[index];
+  }
+
+  private static Format parseFormat(String value) {
+    try {
+      return Format.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown format: " + value);
+    }
+  }
+
+  private static StagePipeline.Mode parseMode(String value) {
+    try {
+      return StagePipeline.Mode.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown mode: " + value);
+    }
+  }
+
+  private static int parseThreads(String value) {
+    try {
+      int threads = Integer.parseInt(value);
+      if (threads < 1) {
+        throw new IllegalArgumentException("Thread count must be positive: " + value);
+      }
+      return threads;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid thread count: " + value);
+    }
+  }
+
+  private void analyze(PrintStream err) throws IOException, InterruptedException {
+    // 解析失敗はここで1行ずつ報告するため，エンジンのログは--verbose指定時のみ表示
+    Logger.getLogger("com.example").setLevel(verbose ? Level.INFO : Level.SEVERE);
+
+    String root = workspaceRoot.toString();
+    Path indexDirectory = null;
+    if (useIndex) {
+      indexDirectory = indexDir != null ? indexDir : AnalysisEngine.defaultIndexDirectory(root);
+    }
+    long start = System.nanoTime();
+    WorkspaceAnalysis analysis;
+    try (AnalysisEngine engine = new AnalysisEngine(root, mode, indexDirectory, threads)) {
+      engine.setNodeTiming(printMetrics);
+      analysis =
+          engine.analyzeWorkspace(
+              new AnalysisListener() {
+                @Override
+                public void onStarted(int totalFiles) {
+                  err.println("Analyzing " + totalFiles + " files in " + root);
+                }
+
+                @Override
+                public void onFileFailed(String filePath, Throwable error) {
+                  err.println("Failed: " + filePath + ": " + error);
+                }
+              },
+              Cancellation.NONE);
+      if (printMetrics) {
+        printMetrics(engine, err);
+      }
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    CodeGraph graph = analysis.graph();
+    writeGraph(graph);
+    err.printf(
+        Locale.ROOT,
+        "Analyzed %d files (%d failed): %d nodes, %d edges in %.1f s -> %s%n",
+        analysis.analyzedFiles() + analysis.failedFiles(),
+        analysis.failedFiles(),
+        graph.getGraphNodes().size(),
+        graph.getGraphEdges().size(),
+        elapsedMillis / 1000.0,
+        output != null ? output : "standard output");
+  }
+
+  // 出力先ファイルへは一時ファイルに書いてから置き換える（途中で失敗しても前回の結果を残す）
+  private void writeGraph(CodeGraph graph) throws IOException {
+    if (output == null) {
+      OutputStream out = new FilterOutputStream(System.out) {
+        @Override
+        public void close() throws IOException {
+          flush();
+        }
+      };
+      writeGraph(graph, out);
+      return;
+    }
+    Path parent = output.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path temporary = Files.createTempFile(parent, output.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+        writeGraph(graph, out);
+      }
+      Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private void writeGraph(CodeGraph graph, OutputStream out) throws IOException {
+    switch (format) {
+      case JSON -> DependVizTextDocumentService.writeJson(graph, out);
+      case COMPACT ->
+          MAPPER.writer()
+              .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+              .writeValue(out, CompactGraph.of(graph));
+      case DOT -> writeDot(graph, out);
+    }
+    out.flush();
+  }
+
+  private static void writeDot(CodeGraph graph, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write("digraph dependviz {\n");
+    for (GraphNode node : graph.getGraphNodes()) {
+      writer.write("  " + quote(node.getNodeName()) + " [type=" + quote(node.getType()));
+      if (node.getLinesOfCode() >= 0) {
+        writer.write(", loc=" + node.getLinesOfCode());
+      }
+      writer.write("];\n");
+    }
+    for (GraphEdge edge : graph.getGraphEdges()) {
+      writer.write(
+          "  "
+              + quote(edge.getSourceNode().getNodeName())
+              + " -> "
+              + quote(edge.getTargetNode().getNodeName())
+              + " [label="
+              + quote(edge.getType())
+              + "];\n");
+    }
+    writer.write("}\n");
+    writer.flush();
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private static void printMetrics(AnalysisEngine engine, PrintStream err) {
+    err.printf(
+        Locale.ROOT,
+        "%-22s %8s %10s %8s %12s %12s %12s%n",
+        "stage", "files", "resolved", "failed", "wall ms", "cpu ms", "alloc MB");
+    for (StageMetrics.Snapshot stage : engine.getMetrics()) {
+      err.printf(
+          Locale.ROOT,
+          "%-22s %8d %10d %8d %12s %12s %12s%n",
+          stage.name(),
+          stage.files(),
+          stage.resolved(),
+          stage.failed(),
+          millions(stage.wallNanos()),
+          millions(stage.cpuNanos()),
+          millions(stage.allocatedBytes()));
+    }
+    err.println("(-: not measured; stages sharing the fused AST walk have no CPU time)");
+  }
+
+  // 計測した値の合計（100万単位）．計測していない場合は"-"
+  private static String millions(Histogram.Snapshot values) {
+    return values.count() == 0 ? "-" : String.format(Locale.ROOT, "%.1f", values.sum() / 1e6);
+  }
+}
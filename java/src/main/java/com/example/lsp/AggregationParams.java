@@ -0,0 +1,41 @@
+package com.example.lsp;
+
+import java.util.List;
+
+/**
+ * dependviz/getAggregatedGraph のパラメータ
+ */
+public class AggregationParams {
+  // "module"（既定）または "package"
+  private String level;
+
+  // 展開する集約ノードのID（モジュールはパッケージへ，パッケージはクラスへ）
+  private List<String> expand;
+
+  // 数えるエッジの種類（"Extends" など．未指定・空の場合は全種類）
+  private List<String> edgeTypes;
+
+  public String getLevel() {
+    return level;
+  }
+
+  public void setLevel(String level) {
+    this.level = level;
+  }
+
+  public List<String> getExpand() {
+    return expand;
+  }
+
+  public void setExpand(List<String> expand) {
+    this.expand = expand;
+  }
+
+  public List<String> getEdgeTypes() {
+    return edgeTypes;
+  }
+
+  public void setEdgeTypes(List<String> edgeTypes) {
+    this.edgeTypes = edgeTypes;
+  }
+}
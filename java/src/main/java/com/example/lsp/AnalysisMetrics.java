@@ -0,0 +1,91 @@
+package com.example.lsp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.parser.metrics.Histogram;
+import com.example.parser.metrics.StageMetrics;
+import com.example.parser.resolution.ResolutionCache;
+
+/**
+ * 構文解析・ステージごとの計測値（dependviz/getMetrics の応答）
+ *
+ * 時間はナノ秒．分布はファイル単位の値の対数ヒストグラムで，
+ * upperBounds[i] 以下（1つ前の上限より大きい）の値のファイルが counts[i] 件ある．
+ * 分布のcountは値を計測したファイル数で，filesより少ない場合がある．FUSEDモードで
+ * 走査を共有するステージのcpuNanosは計測しない（count=0）．wallNanos・allocatedBytesも
+ * ノード単位の計測（dependviz.metrics.nodeTiming）が無効な間は記録しない．
+ */
+public class AnalysisMetrics {
+  // 構文解析（名前は"Parse"），続いてステージ登録順
+  public List<Stage> stages = new ArrayList<>();
+
+  // 型解決キャッシュ
+  public long cacheHits;
+  public long cacheNegativeHits;
+  public long cacheMisses;
+  public long cacheBypasses;
+  public int cacheSize;
+  public double cacheHitRate;
+
+  public static class Stage {
+    public String name;
+    // 処理したファイル数
+    public long files;
+    // 処理に成功・失敗したノード数（構文解析はファイル数）
+    public long resolved;
+    public long failed;
+    public Distribution wallNanos;
+    public Distribution cpuNanos;
+    public Distribution allocatedBytes;
+  }
+
+  public static class Distribution {
+    public long count;
+    public long sum;
+    public long max;
+    // 分位点の近似値（値を含むバケットの上限）
+    public long p50;
+    public long p90;
+    public long p99;
+    public long[] upperBounds = new long[0];
+    public long[] counts = new long[0];
+  }
+
+  /**
+   * 計測値をこのオブジェクトへ書き込む
+   */
+  void fill(List<StageMetrics.Snapshot> snapshots, ResolutionCache.Stats cacheStats) {
+    stages = new ArrayList<>(snapshots.size());
+    for (StageMetrics.Snapshot snapshot : snapshots) {
+      Stage stage = new Stage();
+      stage.name = snapshot.name();
+      stage.files = snapshot.files();
+      stage.resolved = snapshot.resolved();
+      stage.failed = snapshot.failed();
+      stage.wallNanos = toDistribution(snapshot.wallNanos());
+      stage.cpuNanos = toDistribution(snapshot.cpuNanos());
+      stage.allocatedBytes = toDistribution(snapshot.allocatedBytes());
+      stages.add(stage);
+    }
+    cacheHits = cacheStats.hits();
+    cacheNegativeHits = cacheStats.negativeHits();
+    cacheMisses = cacheStats.misses();
+    cacheBypasses = cacheStats.bypasses();
+    cacheSize = cacheStats.size();
+    cacheHitRate = cacheStats.hitRate();
+  }
+
+  private static Distribution toDistribution(Histogram.Snapshot histogram) {
+    Distribution distribution = new Distribution();
+    distribution.count = histogram.count();
+    distribution.sum = histogram.sum();
+    distribution.max = histogram.max();
+    distribution.p50 = histogram.quantile(0.5);
+    distribution.p90 = histogram.quantile(0.9);
+    distribution.p99 = histogram.quantile(0.99);
+    distribution.upperBounds = histogram.upperBounds();
+    distribution.counts = histogram.counts();
+    return distribution;
+  }
+}
@@ -0,0 +1,110 @@
+package com.example.lsp;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ドキュメント単位の再解析スケジューラ
+ *
+ * 同じキーへの要求はデバウンスして1回にまとめ，新しい要求が来た時点で
+ * 待機中・実行中の古い解析をキャンセルする．解析はJSON-RPCのスレッド外で実行する．
+ */
+public class AnalysisScheduler implements AutoCloseable {
+  private static final Logger logger = Logger.getLogger(AnalysisScheduler.class.getName());
+
+  private final ScheduledThreadPoolExecutor executor;
+  private final long debounceMillis;
+  private final Map<String, Pending> tasks = new ConcurrentHashMap<>();
+
+  public AnalysisScheduler(long debounceMillis, int threads) {
+    this.debounceMillis = debounceMillis;
+    AtomicInteger count = new AtomicInteger();
+    this.executor =
+        new ScheduledThreadPoolExecutor(
+            threads,
+            runnable -> {
+              Thread thread = new Thread(runnable, "dependviz-scheduler-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.executor.setRemoveOnCancelPolicy(true);
+  }
+
+  /** デバウンス後に実行（同じキーの古い要求はキャンセル） */
+  public void schedule(String key, Runnable task) {
+    schedule(key, task, debounceMillis);
+  }
+
+  /** 待たずに実行（同じキーの古い要求はキャンセル） */
+  public void scheduleNow(String key, Runnable task) {
+    schedule(key, task, 0);
+  }
+
+  /** 待機中・実行中の要求をキャンセル */
+  public synchronized void cancel(String key) {
+    Pending pending = tasks.remove(key);
+    if (pending != null) {
+      pending.cancel();
+    }
+  }
+
+  /** キーに対する要求がなくなった時点で完了するfuture（待つ間スレッドを占有しない） */
+  public CompletableFuture<Void> whenIdle(String key) {
+    Pending pending = tasks.get(key);
+    if (pending == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    // 完了までに新しい要求が来ていれば，それも待つ
+    return pending.done.thenCompose(ignored -> whenIdle(key));
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private synchronized void schedule(String key, Runnable task, long delayMillis) {
+    Pending pending = new Pending(key, task);
+    Pending previous = tasks.put(key, pending);
+    if (previous != null) {
+      previous.cancel();
+    }
+    pending.future = executor.schedule(pending, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private final class Pending implements Runnable {
+    private final String key;
+    private final Runnable task;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private Future<?> future;
+
+    private Pending(String key, Runnable task) {
+      this.key = key;
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        logger.log(Level.WARNING, e, () -> "Scheduled analysis failed: " + key);
+      } finally {
+        tasks.remove(key, this);
+        done.complete(null);
+      }
+    }
+
+    private void cancel() {
+      future.cancel(true);
+      done.complete(null);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.lsp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.parser.graph.AggregatedGraph;
+
+/**
+ * 集約したグラフの転送形式（dependviz/getAggregatedGraph の応答）
+ *
+ * CompactGraphと同じ形式で，集約ノードのメンバー数とリンクの重みを加える．
+ * リンクは（始点, 終点, 種類）ごとに1本で，集約ノードの行数はメンバーの合計．
+ */
+public class CompactAggregatedGraph extends CompactGraph {
+  public long graphVersion;
+
+  // "module" または "package"
+  public String level;
+
+  // ノードごとのメンバーのクラス数（クラスノードは1）
+  public int[] memberCounts = new int[0];
+
+  // リンクごとの重み（集約した元のエッジの本数）
+  public int[] weights = new int[0];
+
+  /**
+   * 集約したグラフの内容をこのオブジェクトへ書き込む
+   */
+  void fill(AggregatedGraph graph) {
+    int nodeCount = graph.nodeCount();
+    Map<String, Integer> nodeTypeIndex = new HashMap<>();
+    Map<String, Integer> filePathIndex = new HashMap<>();
+    Map<String, Integer> edgeTypeIndex = new HashMap<>();
+
+    ids = new ArrayList<>(graph.ids());
+    types = new int[nodeCount];
+    linesOfCode = graph.linesOfCode().clone();
+    memberCounts = graph.memberCounts().clone();
+    files = new int[nodeCount];
+    for (int v = 0; v < nodeCount; v++) {
+      types[v] = intern(nodeTypeIndex, nodeTypes, graph.types().get(v));
+      String filePath = graph.filePaths().get(v);
+      files[v] = filePath == null ? -1 : intern(filePathIndex, filePaths, filePath);
+    }
+
+    int edgeCount = graph.edgeCount();
+    links = new int[edgeCount * 3];
+    weights = graph.edgeWeights().clone();
+    for (int v = 0; v < nodeCount; v++) {
+      for (int e = graph.edgeOffsets()[v]; e < graph.edgeOffsets()[v + 1]; e++) {
+        links[e * 3] = v;
+        links[e * 3 + 1] = graph.edgeTargets()[e];
+        links[e * 3 + 2] = intern(edgeTypeIndex, edgeTypes, graph.edgeTypes()[e].getLabel());
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.example.lsp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.GraphEdge;
+import com.example.parser.models.GraphNode;
+
+/**
+ * グラフのコンパクトな転送形式
+ *
+ * ノードIDは文字列テーブルで一度だけ送り，ノードの属性は列ごとの配列，
+ * リンクは（始点, 終点, 種類）のインデックスを並べた整数配列で表す．
+ * ノード・エッジの種類は各テーブルへのインデックス（小さな列挙値）になる．
+ * JSON文字列に包まず構造化オブジェクトのままレスポンスとして返す．
+ */
+public class CompactGraph {
+  public static final String FORMAT = "dependviz-compact/1";
+
+  public String format = FORMAT;
+
+  // ノードID（配列上の位置がノードのインデックス）
+  public List<String> ids = new ArrayList<>();
+
+  // ノードの種類のテーブルと，ノードごとのインデックス
+  public List<String> nodeTypes = new ArrayList<>();
+  public int[] types = new int[0];
+
+  // ノードごとの行数（不明は-1）
+  public int[] linesOfCode = new int[0];
+
+  // ファイルパスのテーブルと，ノードごとのインデックス（不明は-1）
+  public List<String> filePaths = new ArrayList<>();
+  public int[] files = new int[0];
+
+  // エッジの種類のテーブル
+  public List<String> edgeTypes = new ArrayList<>();
+
+  // [始点, 終点, 種類] の3要素ずつ並べたリンク
+  public int[] links = new int[0];
+
+  /**
+   * CodeGraphをコンパクト形式へ変換
+   */
+  public static CompactGraph of(CodeGraph graph) {
+    CompactGraph compact = new CompactGraph();
+    compact.fill(graph);
+    return compact;
+  }
+
+  /**
+   * CodeGraphの内容をこのオブジェクトへ書き込む
+   */
+  void fill(CodeGraph graph) {
+    List<GraphNode> nodes = graph.getGraphNodes();
+    List<GraphEdge> edges = graph.getGraphEdges();
+
+    Map<String, Integer> nodeIndex = new HashMap<>(nodes.size() * 2);
+    Map<String, Integer> nodeTypeIndex = new HashMap<>();
+    Map<String, Integer> filePathIndex = new HashMap<>();
+    Map<String, Integer> edgeTypeIndex = new HashMap<>();
+
+    ids = new ArrayList<>(nodes.size());
+    types = new int[nodes.size()];
+    linesOfCode = new int[nodes.size()];
+    files = new int[nodes.size()];
+    for (int i = 0; i < nodes.size(); i++) {
+      GraphNode node = nodes.get(i);
+      ids.add(node.getId());
+      nodeIndex.put(node.getId(), i);
+      types[i] = intern(nodeTypeIndex, nodeTypes, node.getType());
+      linesOfCode[i] = node.getLinesOfCode();
+      files[i] =
+          node.getFilePath() == null ? -1 : intern(filePathIndex, filePaths, node.getFilePath());
+    }
+
+    links = new int[edges.size() * 3];
+    for (int i = 0; i < edges.size(); i++) {
+      GraphEdge edge = edges.get(i);
+      links[i * 3] = nodeIndex.get(edge.getSourceNode().getId());
+      links[i * 3 + 1] = nodeIndex.get(edge.getTargetNode().getId());
+      links[i * 3 + 2] = intern(edgeTypeIndex, edgeTypes, edge.getType());
+    }
+  }
+
+  // テーブルにない値は末尾に追加し，インデックスを返す
+  static int intern(Map<String, Integer> index, List<String> table, String value) {
+    return index.computeIfAbsent(
+        value,
+        key -> {
+          table.add(key);
+          return table.size() - 1;
+        });
+  }
+}
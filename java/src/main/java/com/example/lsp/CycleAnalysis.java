@@ -0,0 +1,67 @@
+package com.example.lsp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.example.parser.graph.StronglyConnectedComponents;
+
+/**
+ * 循環依存の検出結果（dependviz/getCycles の応答）
+ *
+ * ノードはクラス，または集約したパッケージ・モジュール．
+ * 強連結成分の番号はトポロジカル順で，縮約DAGの辺は常に番号の小さい成分から
+ * 大きい成分へ向かう．
+ */
+public class CycleAnalysis {
+  public long graphVersion;
+
+  // ノードIDと，ノードごとの強連結成分の番号（配列上の位置がノードのインデックス）
+  public List<String> ids = new ArrayList<>();
+  public int[] componentOf = new int[0];
+  public int componentCount;
+
+  // 循環依存（2ノード以上または自己ループを持つ成分）のメンバー．大きい順
+  public List<List<String>> cycles = new ArrayList<>();
+
+  // 縮約DAGの [始点成分, 終点成分] の2要素ずつ並べた辺
+  public int[] dagLinks = new int[0];
+
+  /**
+   * 分解結果をこのオブジェクトへ書き込む
+   */
+  void fill(List<String> nodeIds, StronglyConnectedComponents components) {
+    int nodeCount = nodeIds.size();
+    ids = new ArrayList<>(nodeIds);
+    componentOf = new int[nodeCount];
+    for (int v = 0; v < nodeCount; v++) {
+      componentOf[v] = components.componentOf(v);
+    }
+    componentCount = components.componentCount();
+
+    List<Integer> cyclic = new ArrayList<>();
+    for (int c = 0; c < componentCount; c++) {
+      if (components.isCyclic(c)) {
+        cyclic.add(c);
+      }
+    }
+    cyclic.sort(Comparator.comparingInt(components::componentSize).reversed());
+    cycles = new ArrayList<>(cyclic.size());
+    for (int c : cyclic) {
+      List<String> members = new ArrayList<>(components.componentSize(c));
+      for (int v : components.members(c)) {
+        members.add(nodeIds.get(v));
+      }
+      cycles.add(members);
+    }
+
+    dagLinks = new int[components.dagEdgeCount() * 2];
+    int i = 0;
+    for (int c = 0; c < componentCount; c++) {
+      for (int e = components.dagStart(c); e < components.dagEnd(c); e++) {
+        dagLinks[i++] = c;
+        dagLinks[i++] = components.dagTarget(e);
+      }
+    }
+  }
+}
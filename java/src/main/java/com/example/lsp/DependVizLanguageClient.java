@@ -0,0 +1,15 @@
+package com.example.lsp;
+
+import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
+import org.eclipse.lsp4j.services.LanguageClient;
+
+/**
+ * DependViz拡張機能側のクライアント（カスタム通知を追加）
+ */
+public interface DependVizLanguageClient extends LanguageClient {
+  /**
+   * ワークスペースグラフの差分を通知
+   */
+  @JsonNotification("dependviz/graphDelta")
+  void graphDelta(GraphDelta delta);
+}
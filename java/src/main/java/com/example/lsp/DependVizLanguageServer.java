@@ -2,14 +2,13 @@ package com.example.lsp;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.eclipse.lsp4j.DidChangeConfigurationParams;
-import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
 import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.InitializeResult;
 import org.eclipse.lsp4j.ServerCapabilities;
@@ -18,11 +17,14 @@ import org.eclipse.lsp4j.TextDocumentSyncOptions;
 import org.eclipse.lsp4j.WorkspaceFolder;
 import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
 import org.eclipse.lsp4j.services.LanguageClient;
+import org.eclipse.lsp4j.services.LanguageClientAware;
 import org.eclipse.lsp4j.services.LanguageServer;
 import org.eclipse.lsp4j.services.TextDocumentService;
 import org.eclipse.lsp4j.services.WorkspaceService;
 
-public class DependVizLanguageServer implements LanguageServer {
+import com.example.cli.BatchAnalyzer;
+
+public class DependVizLanguageServer implements LanguageServer, LanguageClientAware {
   private static final Logger logger = Logger.getLogger(DependVizLanguageServer.class.getName());
 
   private final DependVizTextDocumentService textDocumentService;
@@ -31,7 +33,7 @@ public class DependVizLanguageServer implements LanguageServer {
 
   public DependVizLanguageServer() {
     this.textDocumentService = new DependVizTextDocumentService();
-    this.workspaceService = new NoOpWorkspaceService();
+    this.workspaceService = new DependVizWorkspaceService(textDocumentService);
   }
 
   // カスタムリクエストハンドラの実装
@@ -40,6 +42,65 @@ public class DependVizLanguageServer implements LanguageServer {
     return textDocumentService.getFileDependencyGraph(uri);
   }
 
+  @JsonRequest("dependviz/getWorkspaceDependencyGraph")
+  public CompletableFuture<String> getWorkspaceDependencyGraph(WorkspaceGraphParams params) {
+    return textDocumentService.getWorkspaceDependencyGraph(params);
+  }
+
+  // JSON文字列の代わりにコンパクト形式の構造化オブジェクトを返す版
+  @JsonRequest("dependviz/getCompactFileDependencyGraph")
+  public CompletableFuture<CompactGraph> getCompactFileDependencyGraph(String uri) {
+    return textDocumentService.getCompactFileDependencyGraph(uri);
+  }
+
+  @JsonRequest("dependviz/getCompactWorkspaceDependencyGraph")
+  public CompletableFuture<CompactGraph> getCompactWorkspaceDependencyGraph(
+      WorkspaceGraphParams params) {
+    return textDocumentService.getCompactWorkspaceDependencyGraph(params);
+  }
+
+  // 解析済みのワークスペースグラフを再解析せずに返す（未解析の場合はnull）
+  @JsonRequest("dependviz/getCompactWorkspaceGraph")
+  public CompletableFuture<CompactGraph> getCompactWorkspaceGraph() {
+    return textDocumentService.getCompactWorkspaceGraph();
+  }
+
+  @JsonRequest("dependviz/getNeighborhood")
+  public CompletableFuture<CompactGraph> getNeighborhood(GraphQueryParams params) {
+    return textDocumentService.getNeighborhood(params);
+  }
+
+  @JsonRequest("dependviz/getSlice")
+  public CompletableFuture<CompactGraph> getSlice(GraphQueryParams params) {
+    return textDocumentService.getSlice(params);
+  }
+
+  @JsonRequest("dependviz/getShortestPath")
+  public CompletableFuture<CompactGraph> getShortestPath(GraphQueryParams params) {
+    return textDocumentService.getShortestPath(params);
+  }
+
+  @JsonRequest("dependviz/getCycles")
+  public CompletableFuture<CycleAnalysis> getCycles(GraphQueryParams params) {
+    return textDocumentService.getCycles(params);
+  }
+
+  @JsonRequest("dependviz/getAggregatedGraph")
+  public CompletableFuture<CompactAggregatedGraph> getAggregatedGraph(AggregationParams params) {
+    return textDocumentService.getAggregatedGraph(params);
+  }
+
+  @JsonRequest("dependviz/getMetrics")
+  public CompletableFuture<AnalysisMetrics> getMetrics(MetricsParams params) {
+    return textDocumentService.getMetrics(params);
+  }
+
+  @Override
+  public void connect(LanguageClient client) {
+    // 途中結果などサーバーからの通知に使用
+    textDocumentService.connect(client);
+  }
+
   @Override
   public CompletableFuture<InitializeResult> initialize(InitializeParams params) {
     logger.info("Initializing DependViz Language Server");
@@ -58,7 +119,7 @@ public class DependVizLanguageServer implements LanguageServer {
     // TextDocument同期設定
     TextDocumentSyncOptions syncOptions = new TextDocumentSyncOptions();
     syncOptions.setOpenClose(true); // didOpen/didCloseをサポート
-    syncOptions.setChange(TextDocumentSyncKind.Full); // ファイル全体の同期
+    syncOptions.setChange(TextDocumentSyncKind.Incremental); // 差分のみの同期
     capabilities.setTextDocumentSync(syncOptions);
 
     InitializeResult result = new InitializeResult(capabilities);
@@ -69,6 +130,7 @@ public class DependVizLanguageServer implements LanguageServer {
   public CompletableFuture<Object> shutdown() {
     logger.info("Shutting down DependViz Language Server");
     errorCode = 0;
+    textDocumentService.shutdown();
     return CompletableFuture.completedFuture(null);
   }
 
@@ -89,6 +151,10 @@ public class DependVizLanguageServer implements LanguageServer {
   }
 
   public static void main(String[] args) {
+    // "analyze"で始まる場合はLSPを起動せずバッチ解析（拡張機能は引数なしで起動する）
+    if (args.length > 0 && args[0].equals("analyze")) {
+      System.exit(BatchAnalyzer.run(Arrays.copyOfRange(args, 1, args.length), System.err));
+    }
     logger.info("Starting DependViz Language Server");
     DependVizLanguageServer server = new DependVizLanguageServer();
 
@@ -96,9 +162,10 @@ public class DependVizLanguageServer implements LanguageServer {
     InputStream in = System.in;
     OutputStream out = System.out;
 
-    org.eclipse.lsp4j.jsonrpc.Launcher<LanguageClient> launcher =
+    org.eclipse.lsp4j.jsonrpc.Launcher<DependVizLanguageClient> launcher =
         org.eclipse.lsp4j.jsonrpc.Launcher.createLauncher(
-            server, LanguageClient.class, in, out);
+            server, DependVizLanguageClient.class, in, out);
+    server.connect(launcher.getRemoteProxy());
 
     logger.info("Language Server started, listening on stdin/stdout");
     try {
@@ -124,12 +191,4 @@ public class DependVizLanguageServer implements LanguageServer {
     }
     return params.getRootPath();
   }
-
-  private static final class NoOpWorkspaceService implements WorkspaceService {
-    @Override
-    public void didChangeConfiguration(DidChangeConfigurationParams params) {}
-
-    @Override
-    public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {}
-  }
 }
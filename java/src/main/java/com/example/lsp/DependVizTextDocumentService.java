@@ -1,9 +1,26 @@
 package com.example.lsp;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,22 +28,90 @@ import org.eclipse.lsp4j.DidChangeTextDocumentParams;
 import org.eclipse.lsp4j.DidCloseTextDocumentParams;
 import org.eclipse.lsp4j.DidOpenTextDocumentParams;
 import org.eclipse.lsp4j.DidSaveTextDocumentParams;
+import org.eclipse.lsp4j.ProgressParams;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseError;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.eclipse.lsp4j.services.LanguageClient;
 import org.eclipse.lsp4j.services.TextDocumentService;
 
 import com.example.parser.AnalysisEngine;
+import com.example.parser.AnalysisListener;
+import com.example.parser.Cancellation;
+import com.example.parser.WorkspaceAnalysis;
+import com.example.parser.graph.AggregatedGraph;
+import com.example.parser.graph.GraphAggregation;
+import com.example.parser.graph.GraphQueries;
+import com.example.parser.graph.StronglyConnectedComponents;
 import com.example.parser.models.CodeGraph;
+import com.example.parser.models.CompactCodeGraph;
+import com.example.parser.models.EdgeType;
+import com.example.parser.models.SymbolTable;
+import com.example.parser.models.WorkspaceGraph;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class DependVizTextDocumentService implements TextDocumentService {
   private static final Logger logger = Logger.getLogger(DependVizTextDocumentService.class.getName());
 
-  // ファイルパスごとにCodeGraphをキャッシュ
-  private final Map<String, CodeGraph> graphCache = new HashMap<>();
+  private static final String EMPTY_GRAPH_JSON = "{\"nodes\": [], \"links\": []}";
+
+  // スレッドセーフなので全リクエストで共有
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  // 連続した変更通知をまとめる待ち時間
+  private static final long CHANGE_DEBOUNCE_MILLIS = 300;
+
+  // グラフキャッシュの既定の上限
+  private static final long DEFAULT_CACHE_MAX_ENTRIES = 10_000;
+  private static final long DEFAULT_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+
+  // ファイルパスごとにCodeGraphをキャッシュ（エントリ数と推定バイト数で上限を設けLRUで追い出し）．
+  // ワークスペースグラフのフラグメントはキャッシュに重ねて持たず，その推定サイズを予約として数える
+  private final GraphCache graphCache =
+      GraphCache.fromSystemProperties(DEFAULT_CACHE_MAX_ENTRIES, DEFAULT_CACHE_MAX_BYTES);
+
+  // 開いているドキュメントの最新内容
+  private final DocumentStore documentStore = new DocumentStore();
+
+  // 編集中ドキュメントの再解析（デバウンスして最新版のみ解析）
+  private final AnalysisScheduler scheduler = new AnalysisScheduler(CHANGE_DEBOUNCE_MILLIS, 2);
+
+  // ワークスペース解析で得たファイル単位のグラフをマージした全体のグラフ
+  // （未解析の場合はnull．ファイル監視・編集で差分更新．更新と読み取りはthisで保護）
+  private volatile WorkspaceGraph workspaceGraph;
+
+  // ワークスペースグラフの版（全体の解析・差分の適用ごとに増やす．thisで保護）
+  private long workspaceVersion;
+
+  // ワークスペースグラフのフラグメントの推定バイト数（thisで保護）
+  private long fragmentBytes;
+
+  // 問い合わせ用のCSRスナップショット（作り直しはthisの外で，snapshotLockで1スレッドずつ行う）
+  private final Object snapshotLock = new Object();
+  private volatile QuerySnapshot querySnapshot;
+
+  // ファイル監視による更新を直列化するためのチェーン
+  private CompletableFuture<Void> pendingUpdate = CompletableFuture.completedFuture(null);
+
+  // 途中結果のチャンクに含める最大ファイル数と最大送出間隔
+  private static final int PARTIAL_RESULT_MAX_FILES = 50;
+  private static final long PARTIAL_RESULT_INTERVAL_MILLIS = 200;
 
   // 解析エンジン
   private AnalysisEngine analysisEngine;
 
+  // 通知の送信先クライアント（未接続の場合はnull）
+  private volatile LanguageClient client;
+
+  public void connect(LanguageClient client) {
+    this.client = client;
+  }
+
   public void setWorkspaceRoot(String workspaceRoot) {
     // ワークスペースルートが設定されたら解析エンジンを初期化
     try {
@@ -49,7 +134,9 @@ public class DependVizTextDocumentService implements TextDocumentService {
     }
 
     String filePath = URI.create(uri).getPath();
-    analyzeFile(filePath);
+    documentStore.open(
+        filePath, params.getTextDocument().getVersion(), params.getTextDocument().getText());
+    scheduler.scheduleNow(filePath, () -> analyzeFile(filePath, Cancellation.ofCurrentThread()));
   }
 
   @Override
@@ -57,13 +144,15 @@ public class DependVizTextDocumentService implements TextDocumentService {
     String uri = params.getTextDocument().getUri();
     logger.info(() -> "Document changed: " + uri);
 
-    // 変更時は再解析
+    // 変更時はエディタ上の内容で再解析
     if (!uri.endsWith(".java")) {
       return;
     }
 
     String filePath = URI.create(uri).getPath();
-    analyzeFile(filePath);
+    documentStore.change(
+        filePath, params.getTextDocument().getVersion(), params.getContentChanges());
+    scheduler.schedule(filePath, () -> analyzeFile(filePath, Cancellation.ofCurrentThread()));
   }
 
   @Override
@@ -73,7 +162,18 @@ public class DependVizTextDocumentService implements TextDocumentService {
 
     // クローズ時はキャッシュから削除
     String filePath = URI.create(uri).getPath();
+    scheduler.cancel(filePath);
+    documentStore.close(filePath);
     graphCache.remove(filePath);
+
+    // 未保存の編集を反映していた場合に備え，ワークスペースグラフをディスクの内容へ戻す
+    if (hasWorkspaceFragment(filePath)) {
+      scheduler.scheduleNow(filePath, () -> analyzeFile(filePath, Cancellation.ofCurrentThread()));
+    }
+  }
+
+  private synchronized boolean hasWorkspaceFragment(String filePath) {
+    return workspaceGraph != null && workspaceGraph.containsFragment(filePath);
   }
 
   @Override
@@ -81,63 +181,940 @@ public class DependVizTextDocumentService implements TextDocumentService {
   }
 
   /**
-   * 単一ファイルを解析してキャッシュに保存
+   * 単一ファイルを解析してキャッシュに保存（開いている場合はエディタ上の内容を使用）
+   *
+   * ワークスペース解析済みの場合はワークスペースグラフにも反映し，差分を通知する
+   *
+   * @param cancellation 新しい版の到着やリクエストのキャンセルで解析を中断する
+   * @return 解析結果（失敗・キャンセルした場合・より新しい版があり破棄した場合はnull）
    */
-  private void analyzeFile(String filePath) {
+  private CodeGraph analyzeFile(String filePath, Cancellation cancellation) {
     try {
       if (analysisEngine == null) {
         logger.warning("Analysis engine not initialized");
-        return;
+        return null;
       }
 
-      CodeGraph graph = analysisEngine.analyzeFile(filePath);
-      graphCache.put(filePath, graph);
+      DocumentStore.Document document = documentStore.get(filePath);
+      CodeGraph graph =
+          document != null
+              ? analysisEngine.analyzeSource(filePath, document.text(), cancellation)
+              : analysisEngine.analyzeFile(filePath, cancellation);
+
+      // 解析中に新しい版が来た・閉じられた場合は古い結果を捨てる
+      if (document != null && documentStore.get(filePath) != document) {
+        logger.fine(() -> "Discarded superseded analysis: " + filePath);
+        return null;
+      }
+      if (workspaceGraph != null && analysisEngine.isSourceFile(Paths.get(filePath))) {
+        replaceFragments(Map.of(filePath, graph), List.of());
+      } else {
+        graphCache.put(filePath, graph);
+      }
 
       logger.info(
           () -> String.format(
               "Analyzed file: %s (%d nodes, %d edges)",
               filePath, graph.getGraphNodes().size(), graph.getGraphEdges().size()));
+      return graph;
+    } catch (CancellationException e) {
+      logger.fine(() -> "Canceled analysis: " + filePath);
+      return null;
+    } catch (InterruptedException e) {
+      // スケジューラは古くなった解析を割り込みでキャンセルする（パーサーの返却待ちの間など）
+      Thread.currentThread().interrupt();
+      logger.fine(() -> "Interrupted analysis: " + filePath);
+      return null;
     } catch (Exception e) {
       logger.log(Level.SEVERE, e, () -> "Failed to analyze file: " + filePath);
+      return null;
     }
   }
 
   /**
    * カスタムリクエスト: 単一ファイルのグラフデータを取得
+   *
+   * $/cancelRequestでキャンセルされた場合は解析を中断する
    */
   public CompletableFuture<String> getFileDependencyGraph(String uri) {
-    return CompletableFuture.supplyAsync(
+    return computeWithFileGraph(
+        uri,
+        graph -> {
+          if (graph == null) {
+            return EMPTY_GRAPH_JSON;
+          }
+          try {
+            return toJson(graph);
+          } catch (JsonProcessingException e) {
+            logger.log(Level.SEVERE, e, () -> "Failed to serialize file dependency graph");
+            return EMPTY_GRAPH_JSON;
+          }
+        });
+  }
+
+  /**
+   * カスタムリクエスト: 単一ファイルのグラフデータをコンパクト形式で取得
+   */
+  public CompletableFuture<CompactGraph> getCompactFileDependencyGraph(String uri) {
+    return computeWithFileGraph(
+        uri,
+        graph -> {
+          CompactGraph compact = new CompactGraph();
+          if (graph != null) {
+            compact.fill(graph);
+          }
+          return compact;
+        });
+  }
+
+  /**
+   * キャッシュ済みのグラフ（なければ解析した結果，失敗した場合はnull）から応答を作る
+   *
+   * 予約済みの再解析があれば，その完了を待ってから（スレッドをブロックせずに後続として）
+   * 実行する．返したfutureがキャンセルされた場合は解析を中断する．
+   */
+  private <T> CompletableFuture<T> computeWithFileGraph(
+      String uri, Function<CodeGraph, T> function) {
+    String filePath = URI.create(uri).getPath();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Cancellation cancellation =
         () -> {
+          if (result.isCancelled()) {
+            throw new CancellationException();
+          }
+        };
+    scheduler
+        .whenIdle(filePath)
+        .thenRunAsync(
+            () -> {
+              if (result.isDone()) {
+                return;
+              }
+              try {
+                CodeGraph graph = cachedGraph(filePath);
+                if (graph == null) {
+                  // キャッシュにない場合は解析
+                  graph = analyzeFile(filePath, cancellation);
+                }
+                result.complete(function.apply(graph));
+              } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+              }
+            });
+    return result;
+  }
+
+  /**
+   * カスタムリクエスト: ワークスペース全体のグラフデータを取得
+   *
+   * partialResultTokenが指定された場合は，解析が完了したファイルのグラフを
+   * チャンクごとに $/progress で送る．この場合，LSPのpartial resultの規則どおり応答の
+   * nodes・linksは空にし，集計（graphVersion・analyzedFiles・failedFiles）だけを返す．
+   * クライアントはチャンクをマージしてグラフを組み立て，graphVersionより後の差分を適用する．
+   * $/cancelRequestでキャンセルされた場合は残りのファイルの解析を中断する．
+   */
+  public CompletableFuture<String> getWorkspaceDependencyGraph(WorkspaceGraphParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> {
+          AnalyzedWorkspace analyzed =
+              analyzeWorkspace(
+                  params,
+                  cancelChecker,
+                  chunk -> {
+                    GraphChunkJson json = new GraphChunkJson();
+                    fillJsonObject(json, chunk.graph());
+                    json.processedFiles = chunk.processedFiles();
+                    json.failedFiles = chunk.failedFiles();
+                    json.totalFiles = chunk.totalFiles();
+                    return json;
+                  });
+          if (analyzed == null) {
+            return EMPTY_GRAPH_JSON;
+          }
           try {
-            String filePath = URI.create(uri).getPath();
-            CodeGraph graph = graphCache.get(filePath);
+            WorkspaceGraphDataJson json = new WorkspaceGraphDataJson();
+            if (analyzed.streamed()) {
+              json.nodes = List.of();
+              json.links = List.of();
+              json.graphVersion = analyzed.graphVersion();
+            } else {
+              synchronized (this) {
+                fillJsonObject(json, workspaceGraph.getGraph());
+                json.graphVersion = workspaceVersion;
+              }
+            }
+            json.analyzedFiles = analyzed.analysis().analyzedFiles();
+            json.failedFiles = analyzed.analysis().failedFiles();
+            return MAPPER.writeValueAsString(json);
+          } catch (JsonProcessingException e) {
+            logger.log(Level.SEVERE, e, () -> "Failed to serialize workspace dependency graph");
+            return EMPTY_GRAPH_JSON;
+          }
+        });
+  }
 
-            if (graph == null) {
-              // キャッシュにない場合は解析
-              analyzeFile(filePath);
-              graph = graphCache.get(filePath);
+  /**
+   * カスタムリクエスト: ワークスペース全体のグラフデータをコンパクト形式で取得
+   *
+   * 途中結果のチャンクもコンパクト形式で送る（送った場合の応答はgetWorkspaceDependencyGraphと
+   * 同じく集計だけになる）
+   */
+  public CompletableFuture<CompactGraph> getCompactWorkspaceDependencyGraph(
+      WorkspaceGraphParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> {
+          AnalyzedWorkspace analyzed =
+              analyzeWorkspace(
+                  params,
+                  cancelChecker,
+                  chunk -> {
+                    CompactGraphChunk compact = new CompactGraphChunk();
+                    compact.fill(chunk.graph());
+                    compact.processedFiles = chunk.processedFiles();
+                    compact.failedFiles = chunk.failedFiles();
+                    compact.totalFiles = chunk.totalFiles();
+                    return compact;
+                  });
+          CompactWorkspaceGraph compact = new CompactWorkspaceGraph();
+          if (analyzed != null) {
+            if (analyzed.streamed()) {
+              compact.graphVersion = analyzed.graphVersion();
+            } else {
+              synchronized (this) {
+                compact.fill(workspaceGraph.getGraph());
+                compact.graphVersion = workspaceVersion;
+              }
             }
+            compact.analyzedFiles = analyzed.analysis().analyzedFiles();
+            compact.failedFiles = analyzed.analysis().failedFiles();
+          }
+          return compact;
+        });
+  }
 
-            if (graph == null) {
-              return "{\"nodes\": [], \"links\": []}";
+  /**
+   * カスタムリクエスト: 解析済みのワークスペースグラフを再解析せずにコンパクト形式で取得
+   *
+   * 応答のgraphVersion以降の変更はdependviz/graphDeltaで通知される
+   *
+   * @return ワークスペースグラフ（未解析の場合はnull）
+   */
+  public CompletableFuture<CompactGraph> getCompactWorkspaceGraph() {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> {
+          synchronized (this) {
+            if (workspaceGraph == null) {
+              return null;
             }
+            CompactWorkspaceGraph compact = new CompactWorkspaceGraph();
+            compact.fill(workspaceGraph.getGraph());
+            compact.analyzedFiles = workspaceGraph.fragmentCount();
+            compact.graphVersion = workspaceVersion;
+            return compact;
+          }
+        });
+  }
 
-            ObjectMapper mapper = new ObjectMapper();
-            GraphDataJson json = toJsonObject(graph);
-            return mapper.writeValueAsString(json);
-          } catch (JsonProcessingException e) {
-            logger.log(Level.SEVERE, e, () -> "Failed to serialize file dependency graph");
-            return "{\"nodes\": [], \"links\": []}";
+  /**
+   * カスタムリクエスト: ワークスペースグラフ上の近傍（起点からdepthホップ以内）を取得
+   *
+   * 既定はdepth=1・direction=both．ワークスペース未解析の場合はnull
+   */
+  public CompletableFuture<CompactGraph> getNeighborhood(GraphQueryParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> querySubgraph(params, GraphQueries.Direction.BOTH, 1));
+  }
+
+  /**
+   * カスタムリクエスト: ワークスペースグラフ上のスライス（起点から到達できる範囲）を取得
+   *
+   * 既定はdepth=無制限・direction=forward．ワークスペース未解析の場合はnull
+   */
+  public CompletableFuture<CompactGraph> getSlice(GraphQueryParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> querySubgraph(params, GraphQueries.Direction.FORWARD, -1));
+  }
+
+  /**
+   * カスタムリクエスト: nodeIdからtargetIdへの最短の依存経路を取得
+   *
+   * ノードは経路の順に並ぶ（到達できない場合は空）．既定はdirection=forward．
+   * ワークスペース未解析の場合はnull
+   */
+  public CompletableFuture<CompactGraph> getShortestPath(GraphQueryParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> {
+          QuerySnapshot snapshot = querySnapshot();
+          if (snapshot == null) {
+            return null;
+          }
+          if (params == null || params.getNodeId() == null || params.getTargetId() == null) {
+            throw invalidParams("nodeId and targetId are required");
+          }
+          GraphQueries.Direction direction =
+              parseDirection(params.getDirection(), GraphQueries.Direction.FORWARD);
+          Set<EdgeType> edgeTypes = parseEdgeTypes(params.getEdgeTypes());
+          CompactCodeGraph graph = snapshot.graph();
+          int from = graph.indexOf(params.getNodeId());
+          int to = graph.indexOf(params.getTargetId());
+          int[] path =
+              from < 0 || to < 0
+                  ? new int[0]
+                  : GraphQueries.shortestPath(graph, from, to, direction, edgeTypes);
+          return toQueryResult(
+              GraphQueries.pathGraph(graph, path, direction, edgeTypes), snapshot.version());
+        });
+  }
+
+  /**
+   * カスタムリクエスト: ワークスペースグラフの循環依存と縮約DAGを取得
+   *
+   * edgeTypesで循環とみなすエッジの種類を絞り込める．ワークスペース未解析の場合はnull
+   */
+  public CompletableFuture<CycleAnalysis> getCycles(GraphQueryParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> {
+          QuerySnapshot snapshot = querySnapshot();
+          if (snapshot == null) {
+            return null;
+          }
+          Set<EdgeType> edgeTypes = parseEdgeTypes(params != null ? params.getEdgeTypes() : null);
+          String level = params != null && params.getLevel() != null ? params.getLevel() : "class";
+          CycleAnalysis result = new CycleAnalysis();
+          if (level.equalsIgnoreCase("class")) {
+            CompactCodeGraph graph = snapshot.graph();
+            List<String> ids = new ArrayList<>(graph.nodeCount());
+            for (int v = 0; v < graph.nodeCount(); v++) {
+              ids.add(graph.getId(v));
+            }
+            result.fill(ids, StronglyConnectedComponents.of(graph, edgeTypes));
+          } else {
+            // 集約ノード間のエッジで循環を調べる
+            AggregatedGraph aggregated =
+                GraphAggregation.aggregate(
+                    snapshot.graph(),
+                    analysisEngine.getWorkspaceRoot(),
+                    parseLevel(level),
+                    Set.of(),
+                    edgeTypes);
+            result.fill(
+                aggregated.ids(),
+                StronglyConnectedComponents.of(
+                    aggregated.nodeCount(), aggregated.edgeOffsets(), aggregated.edgeTargets()));
+          }
+          result.graphVersion = snapshot.version();
+          return result;
+        });
+  }
+
+  /**
+   * カスタムリクエスト: ワークスペースグラフをモジュール・パッケージ単位に集約して取得
+   *
+   * expandに指定した集約ノードだけを一段細かく展開する．ワークスペース未解析の場合はnull
+   */
+  public CompletableFuture<CompactAggregatedGraph> getAggregatedGraph(AggregationParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> {
+          QuerySnapshot snapshot = querySnapshot();
+          if (snapshot == null) {
+            return null;
+          }
+          String level = params != null && params.getLevel() != null ? params.getLevel() : "module";
+          Set<String> expanded =
+              params != null && params.getExpand() != null
+                  ? new HashSet<>(params.getExpand())
+                  : Set.of();
+          AggregatedGraph aggregated =
+              GraphAggregation.aggregate(
+                  snapshot.graph(),
+                  analysisEngine.getWorkspaceRoot(),
+                  parseLevel(level),
+                  expanded,
+                  parseEdgeTypes(params != null ? params.getEdgeTypes() : null));
+          CompactAggregatedGraph result = new CompactAggregatedGraph();
+          result.fill(aggregated);
+          result.level = level.toLowerCase(Locale.ROOT);
+          result.graphVersion = snapshot.version();
+          return result;
+        });
+  }
+
+  /**
+   * カスタムリクエスト: 構文解析・ステージごとの処理時間・割り当て量・成否の件数を取得
+   *
+   * reset=trueの場合は読み取った後に計測値を0へ戻す．エンジン未初期化の場合はnull
+   */
+  public CompletableFuture<AnalysisMetrics> getMetrics(MetricsParams params) {
+    return CompletableFutures.computeAsync(
+        cancelChecker -> {
+          if (analysisEngine == null) {
+            return null;
+          }
+          AnalysisMetrics metrics = new AnalysisMetrics();
+          metrics.fill(
+              analysisEngine.getMetrics(), analysisEngine.getResolutionCache().getStats());
+          if (params != null && Boolean.TRUE.equals(params.getReset())) {
+            analysisEngine.resetMetrics();
           }
+          return metrics;
         });
   }
 
+  private CompactGraph querySubgraph(
+      GraphQueryParams params, GraphQueries.Direction defaultDirection, int defaultDepth) {
+    QuerySnapshot snapshot = querySnapshot();
+    if (snapshot == null) {
+      return null;
+    }
+    if (params == null || (params.getNodeId() == null && params.getFilePath() == null)) {
+      throw invalidParams("nodeId or filePath is required");
+    }
+    GraphQueries.Direction direction = parseDirection(params.getDirection(), defaultDirection);
+    Set<EdgeType> edgeTypes = parseEdgeTypes(params.getEdgeTypes());
+    int depth = params.getDepth() != null ? params.getDepth() : defaultDepth;
+
+    CompactCodeGraph graph = snapshot.graph();
+    int[] seeds;
+    if (params.getNodeId() != null) {
+      int node = graph.indexOf(params.getNodeId());
+      seeds = node < 0 ? new int[0] : new int[] {node};
+    } else {
+      seeds = GraphQueries.nodesInFile(graph, params.getFilePath());
+    }
+    BitSet nodes = GraphQueries.neighborhood(graph, seeds, depth, direction, edgeTypes);
+    return toQueryResult(GraphQueries.subgraph(graph, nodes, edgeTypes), snapshot.version());
+  }
+
+  // 問い合わせ対象のスナップショットと，それが対応するワークスペースグラフの版
+  private record QuerySnapshot(CompactCodeGraph graph, long version) {}
+
+  // ワークスペースグラフが更新されていればスナップショットを作り直す（未解析の場合はnull）
+  //
+  // thisの中ではフラグメントの一覧（ファイル数分）を写すだけにし，マージとCSRの構築は
+  // thisの外で行う．フラグメントは差し替えられるだけで変更されないため，写した一覧から
+  // 作り直したグラフはその版のワークスペースグラフと同じになる
+  private QuerySnapshot querySnapshot() {
+    QuerySnapshot snapshot = currentSnapshot();
+    if (snapshot != null) {
+      return snapshot;
+    }
+    synchronized (snapshotLock) {
+      Map<String, CodeGraph> fragments;
+      SymbolTable symbols;
+      long version;
+      synchronized (this) {
+        if (workspaceGraph == null) {
+          return null;
+        }
+        snapshot = querySnapshot;
+        if (snapshot != null && snapshot.version() == workspaceVersion) {
+          // 待っている間に他のスレッドが作り直した
+          return snapshot;
+        }
+        fragments = new HashMap<>(workspaceGraph.getFragments());
+        symbols = workspaceGraph.getGraph().getSymbols();
+        version = workspaceVersion;
+      }
+      CodeGraph merged = new WorkspaceGraph(symbols, fragments).getGraph();
+      snapshot = new QuerySnapshot(CompactCodeGraph.from(merged), version);
+      querySnapshot = snapshot;
+      return snapshot;
+    }
+  }
+
+  // 最新の版のスナップショット（未解析・作り直しが必要な場合はnull）
+  private synchronized QuerySnapshot currentSnapshot() {
+    QuerySnapshot snapshot = querySnapshot;
+    return workspaceGraph != null && snapshot != null && snapshot.version() == workspaceVersion
+        ? snapshot
+        : null;
+  }
+
+  private static CompactGraph toQueryResult(CodeGraph graph, long version) {
+    CompactQueryResult result = new CompactQueryResult();
+    result.fill(graph);
+    result.graphVersion = version;
+    return result;
+  }
+
+  private static GraphQueries.Direction parseDirection(
+      String direction, GraphQueries.Direction defaultDirection) {
+    if (direction == null) {
+      return defaultDirection;
+    }
+    try {
+      return GraphQueries.Direction.valueOf(direction.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw invalidParams("Unknown direction: " + direction);
+    }
+  }
+
+  private static GraphAggregation.Level parseLevel(String level) {
+    try {
+      return GraphAggregation.Level.valueOf(level.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw invalidParams("Unknown level: " + level);
+    }
+  }
+
+  private static Set<EdgeType> parseEdgeTypes(List<String> labels) {
+    Set<EdgeType> edgeTypes = EnumSet.noneOf(EdgeType.class);
+    if (labels != null) {
+      for (String label : labels) {
+        try {
+          edgeTypes.add(EdgeType.fromLabel(label));
+        } catch (IllegalArgumentException e) {
+          throw invalidParams(e.getMessage());
+        }
+      }
+    }
+    return edgeTypes;
+  }
+
+  private static ResponseErrorException invalidParams(String message) {
+    return new ResponseErrorException(
+        new ResponseError(ResponseErrorCode.InvalidParams, message, null));
+  }
+
+  /**
+   * ワークスペースを解析してワークスペースグラフを置き換える
+   *
+   * 途中結果を送らなかった場合，応答には解析結果のグラフではなく，その時点の
+   * ワークスペースグラフと版をthisで同期して使うこと（解析後に差分が適用されている・
+   * 別の解析で置き換えられている場合がある）
+   *
+   * @param chunkEncoder 途中結果のチャンクを通知の値へ変換する
+   * @return 解析結果（解析エンジンが未初期化の場合はnull）
+   */
+  private AnalyzedWorkspace analyzeWorkspace(
+      WorkspaceGraphParams params,
+      CancelChecker cancelChecker,
+      Function<PartialResultStreamer.Chunk, Object> chunkEncoder) {
+    if (analysisEngine == null) {
+      logger.warning("Analysis engine not initialized");
+      return null;
+    }
+    try {
+      PartialResultStreamer streamer = createStreamer(params, chunkEncoder);
+      // 開いているファイルはディスクではなくエディタ上の内容を解析し，使った版を覚えておく
+      Map<String, DocumentStore.Document> analyzedDocuments = new ConcurrentHashMap<>();
+      WorkspaceAnalysis analysis =
+          analysisEngine.analyzeWorkspace(
+              new AnalysisListener() {
+                @Override
+                public void onStarted(int totalFiles) {
+                  if (streamer != null) {
+                    streamer.onStarted(totalFiles);
+                  }
+                }
+
+                @Override
+                public void onFileAnalyzed(String filePath, CodeGraph graph) {
+                  if (streamer != null) {
+                    streamer.onFileAnalyzed(filePath, graph);
+                  }
+                }
+
+                @Override
+                public void onFileFailed(String filePath, Throwable error) {
+                  if (streamer != null) {
+                    streamer.onFileFailed(filePath, error);
+                  }
+                }
+              },
+              cancelChecker::checkCanceled,
+              filePath -> {
+                DocumentStore.Document document = documentStore.get(filePath);
+                if (document == null) {
+                  return null;
+                }
+                analyzedDocuments.put(filePath, document);
+                return document.text();
+              });
+      if (streamer != null) {
+        streamer.finish();
+      }
+      // エンジンがマージしたワークスペースグラフをそのまま差分更新の対象にする
+      WorkspaceGraph graph = analysis.workspaceGraph();
+      Map<String, CodeGraph> fragments = graph.getFragments();
+      long bytes = 0;
+      for (Map.Entry<String, CodeGraph> fragment : fragments.entrySet()) {
+        bytes += GraphCache.estimateBytes(fragment.getKey(), fragment.getValue());
+      }
+      long version;
+      synchronized (this) {
+        workspaceGraph = graph;
+        version = ++workspaceVersion;
+        fragmentBytes = bytes;
+        fragments.keySet().forEach(graphCache::remove);
+        graphCache.setReservedBytes(fragmentBytes);
+      }
+      refreshOpenDocuments(analyzedDocuments);
+      logger.info(() -> "Graph cache: " + graphCache.getStats());
+      return new AnalyzedWorkspace(analysis, version, streamer != null);
+    } catch (CancellationException e) {
+      logger.info("Workspace analysis canceled");
+      throw e;
+    } catch (Exception e) {
+      logger.log(Level.SEVERE, e, () -> "Failed to analyze workspace");
+      throw new CompletionException(e);
+    }
+  }
+
+  // 解析中に開かれた・編集されたドキュメントを最新の内容で解析し直し，フラグメントを差し替える
+  // （解析中に完了した再解析は差し替え前のワークスペースグラフに反映されているため）
+  private void refreshOpenDocuments(Map<String, DocumentStore.Document> analyzedDocuments) {
+    for (String filePath : documentStore.openPaths()) {
+      if (documentStore.get(filePath) != analyzedDocuments.get(filePath)
+          && analysisEngine.isSourceFile(Paths.get(filePath))) {
+        scheduler.scheduleNow(
+            filePath, () -> analyzeFile(filePath, Cancellation.ofCurrentThread()));
+      }
+    }
+  }
+
+  /**
+   * ワークスペース解析の結果
+   *
+   * @param graphVersion 解析結果のワークスペースグラフを反映した版
+   * @param streamed 途中結果を $/progress で送ったか
+   */
+  private record AnalyzedWorkspace(
+      WorkspaceAnalysis analysis, long graphVersion, boolean streamed) {}
+
+  // 途中結果の送信先がない場合はnull
+  private PartialResultStreamer createStreamer(
+      WorkspaceGraphParams params, Function<PartialResultStreamer.Chunk, Object> chunkEncoder) {
+    LanguageClient target = client;
+    if (params == null || params.getPartialResultToken() == null || target == null) {
+      return null;
+    }
+    Either<String, Integer> token = params.getPartialResultToken();
+    return new PartialResultStreamer(
+        PARTIAL_RESULT_MAX_FILES,
+        PARTIAL_RESULT_INTERVAL_MILLIS,
+        analysisEngine.getSymbols(),
+        chunk ->
+            target.notifyProgress(
+                new ProgressParams(token, Either.forRight(chunkEncoder.apply(chunk)))));
+  }
+
+  /**
+   * ファイル監視で通知された変更をワークスペースグラフへ反映（通知順に非同期で実行）
+   *
+   * @param createdPaths 作成されたファイル
+   * @param changedPaths 変更されたファイル
+   * @param deletedPaths 削除されたファイル
+   */
+  public synchronized CompletableFuture<Void> updateWatchedFiles(
+      List<String> createdPaths, List<String> changedPaths, List<String> deletedPaths) {
+    pendingUpdate =
+        pendingUpdate
+            .thenRunAsync(() -> applyWatchedFileChanges(createdPaths, changedPaths, deletedPaths))
+            .exceptionally(
+                e -> {
+                  logger.log(Level.SEVERE, e, () -> "Failed to apply watched file changes");
+                  return null;
+                });
+    return pendingUpdate;
+  }
+
+  private void applyWatchedFileChanges(
+      List<String> createdPaths, List<String> changedPaths, List<String> deletedPaths) {
+    if (analysisEngine == null) {
+      return;
+    }
+    List<Path> createdFiles = toSourceFiles(createdPaths);
+    List<Path> deletedFiles = toSourceFiles(deletedPaths);
+    List<Path> modifiedFiles = new ArrayList<>(createdFiles);
+    modifiedFiles.addAll(toSourceFiles(changedPaths));
+    if (modifiedFiles.isEmpty() && deletedFiles.isEmpty()) {
+      return;
+    }
+
+    // 変更のあったファイルだけをTypeSolverのキャッシュから除く（保存のたびに全体を作り直さない）
+    analysisEngine.invalidateSources(modifiedFiles, deletedFiles);
+    List<String> deleted = deletedFiles.stream().map(Path::toString).toList();
+
+    // 型の増減がある場合は，削除された型の解決結果と解決失敗の記録だけを先に破棄
+    Set<String> deletedTypes = new HashSet<>();
+    if (!createdFiles.isEmpty() || !deleted.isEmpty()) {
+      deleted.forEach(filePath -> deletedTypes.addAll(previousDeclaredTypes(filePath)));
+      analysisEngine.invalidateTypes(deletedTypes);
+    }
+    deleted.forEach(graphCache::remove);
+
+    if (workspaceGraph == null) {
+      // ワークスペース未解析の場合は古いキャッシュを捨てるだけ
+      modifiedFiles.forEach(file -> graphCache.remove(file.toString()));
+      return;
+    }
+
+    try {
+      Map<String, Set<String>> previousTypes = new HashMap<>();
+      modifiedFiles.forEach(
+          file -> previousTypes.put(file.toString(), previousDeclaredTypes(file.toString())));
+      Map<String, CodeGraph> updated = new HashMap<>();
+      AnalysisListener collector =
+          new AnalysisListener() {
+            @Override
+            public void onFileAnalyzed(String filePath, CodeGraph graph) {
+              updated.put(filePath, graph);
+            }
+          };
+      int failedFiles =
+          analysisEngine.analyzeFiles(modifiedFiles, collector, Cancellation.NONE, this::unsavedText);
+
+      // 宣言された型が変わった（追加を含む）ファイルがあれば，その型に関わる型解決だけを破棄
+      Set<String> changedTypes = new HashSet<>();
+      Set<String> addedTypes = new HashSet<>();
+      updated.forEach(
+          (filePath, graph) -> {
+            Set<String> before = previousTypes.getOrDefault(filePath, Set.of());
+            Set<String> after = declaredTypes(graph, filePath);
+            if (!before.equals(after)) {
+              changedTypes.addAll(before);
+              changedTypes.addAll(after);
+              after.stream().filter(type -> !before.contains(type)).forEach(addedTypes::add);
+            }
+          });
+      if (!changedTypes.isEmpty()) {
+        analysisEngine.invalidateTypes(changedTypes);
+      }
+
+      // 増減した型を参照するファイルは内容が同じでも解析結果が変わるため，インデックスの
+      // エントリを捨てて解析し直す（古いエッジ・Unknownのノードを残さない）
+      Set<String> affectedTypes = new HashSet<>(changedTypes);
+      affectedTypes.addAll(deletedTypes);
+      Set<String> excluded = new HashSet<>(updated.keySet());
+      modifiedFiles.forEach(file -> excluded.add(file.toString()));
+      excluded.addAll(deleted);
+      List<Path> dependents = dependentFiles(affectedTypes, addedTypes, excluded);
+      if (!dependents.isEmpty()) {
+        analysisEngine.invalidateIndex(dependents);
+        failedFiles +=
+            analysisEngine.analyzeFiles(dependents, collector, Cancellation.NONE, this::unsavedText);
+      }
+
+      GraphDelta delta = replaceFragments(updated, deleted);
+      int failed = failedFiles;
+      logger.info(
+          () -> String.format(
+              "Workspace graph updated: %d changed (%d failed), %d deleted, %d types changed,"
+                  + " %d dependents (+%d/~%d/-%d nodes, +%d/-%d links)",
+              modifiedFiles.size(), failed, deletedFiles.size(), changedTypes.size(),
+              dependents.size(), delta.addedNodes.size(), delta.updatedNodes.size(),
+              delta.removedNodes.size(), delta.addedLinks.size(), delta.removedLinks.size()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 増減した型を参照しうるワークスペースのファイル
+   *
+   * フラグメントのノード（エッジの端点）に型そのものかそのネストした型があるファイルと，
+   * 追加された型については，解決できずエッジのないファイルもあるため，ソースに型の
+   * 単純名が識別子として現れるファイル（importや同じパッケージからの参照を含む）．
+   *
+   * @param excluded 既に解析し直したファイル・削除されたファイル
+   */
+  private List<Path> dependentFiles(
+      Set<String> types, Set<String> addedTypes, Set<String> excluded) {
+    if (types.isEmpty()) {
+      return List.of();
+    }
+    Map<String, CodeGraph> fragments;
+    synchronized (this) {
+      fragments = new HashMap<>(workspaceGraph.getFragments());
+    }
+    Set<String> addedNames = new HashSet<>();
+    addedTypes.forEach(type -> addedNames.add(type.substring(type.lastIndexOf('.') + 1)));
+    List<Path> dependents = new ArrayList<>();
+    fragments.forEach(
+        (filePath, fragment) -> {
+          if (!excluded.contains(filePath)
+              && (referencesAny(fragment, types) || sourceMentions(filePath, addedNames))) {
+            dependents.add(Paths.get(filePath));
+          }
+        });
+    dependents.sort(null);
+    return dependents;
+  }
+
+  private static boolean referencesAny(CodeGraph fragment, Set<String> types) {
+    for (com.example.parser.models.GraphNode node : fragment.getGraphNodes()) {
+      String name = node.getNodeName();
+      if (types.contains(name)) {
+        return true;
+      }
+      for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+        if (types.contains(name.substring(0, dot))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  // ソース（開いている場合はエディタ上の内容）にいずれかの名前が識別子として現れるか
+  private boolean sourceMentions(String filePath, Set<String> names) {
+    if (names.isEmpty()) {
+      return false;
+    }
+    String text = unsavedText(filePath);
+    try {
+      if (text == null) {
+        text = Files.readString(Paths.get(filePath));
+      }
+    } catch (IOException e) {
+      logger.log(Level.FINE, e, () -> "Failed to read " + filePath);
+      return false;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean part = i < text.length() && Character.isJavaIdentifierPart(text.charAt(i));
+      if (part && start < 0) {
+        start = i;
+      } else if (!part && start >= 0) {
+        if (names.contains(text.substring(start, i))) {
+          return true;
+        }
+        start = -1;
+      }
+    }
+    return false;
+  }
+
+  // 開いているファイルのエディタ上の内容（開いていない場合はnull）
+  private String unsavedText(String filePath) {
+    DocumentStore.Document document = documentStore.get(filePath);
+    return document != null ? document.text() : null;
+  }
+
+  // 変更前のフラグメントで宣言されていた型
+  private Set<String> previousDeclaredTypes(String filePath) {
+    CodeGraph previous = cachedGraph(filePath);
+    return previous != null ? declaredTypes(previous, filePath) : Set.of();
+  }
+
+  // ワークスペースグラフのフラグメント，なければキャッシュ済みのグラフ（どちらもない場合はnull）
+  private synchronized CodeGraph cachedGraph(String filePath) {
+    CodeGraph fragment = workspaceGraph != null ? workspaceGraph.getFragment(filePath) : null;
+    return fragment != null ? fragment : graphCache.get(filePath);
+  }
+
+  // ファイルで宣言された型（FilePathStageがファイルパスを設定したノード）
+  private static Set<String> declaredTypes(CodeGraph graph, String filePath) {
+    Set<String> types = new HashSet<>();
+    for (com.example.parser.models.GraphNode node : graph.getGraphNodes()) {
+      if (filePath.equals(node.getFilePath())) {
+        types.add(node.getNodeName());
+      }
+    }
+    return types;
+  }
+
+  private List<Path> toSourceFiles(List<String> filePaths) {
+    return filePaths.stream()
+        .map(Paths::get)
+        .filter(analysisEngine::isSourceFile)
+        .toList();
+  }
+
+  /**
+   * フラグメントを差し替えてワークスペースグラフを更新し，差分をクライアントへ通知
+   *
+   * 差し替えたフラグメントに含まれるノード・エッジだけを更新する．
+   * フラグメントの推定サイズはグラフキャッシュの予約として数える
+   *
+   * @param updated 新しいフラグメント（ファイルパス -> グラフ）
+   * @param removed 取り除くフラグメントのファイルパス
+   * @return ワークスペースグラフの差分（変化がない場合は空）
+   */
+  private synchronized GraphDelta replaceFragments(
+      Map<String, CodeGraph> updated, Collection<String> removed) {
+    for (String filePath : removed) {
+      fragmentBytes -= estimateFragmentBytes(filePath);
+    }
+    updated.forEach(
+        (filePath, graph) -> {
+          fragmentBytes +=
+              GraphCache.estimateBytes(filePath, graph) - estimateFragmentBytes(filePath);
+          graphCache.remove(filePath);
+        });
+    GraphDelta delta = GraphDelta.from(workspaceGraph.replaceFragments(updated, removed));
+    graphCache.setReservedBytes(fragmentBytes);
+    if (delta.isEmpty()) {
+      return delta;
+    }
+    delta.baseVersion = workspaceVersion;
+    delta.version = ++workspaceVersion;
+    if (client instanceof DependVizLanguageClient target) {
+      target.graphDelta(delta);
+    }
+    logger.fine(
+        () -> String.format(
+            "Graph delta v%d: +%d/~%d/-%d nodes, +%d/-%d links",
+            delta.version, delta.addedNodes.size(), delta.updatedNodes.size(),
+            delta.removedNodes.size(), delta.addedLinks.size(), delta.removedLinks.size()));
+    return delta;
+  }
+
+  private long estimateFragmentBytes(String filePath) {
+    CodeGraph fragment = workspaceGraph.getFragment(filePath);
+    return fragment != null ? GraphCache.estimateBytes(filePath, fragment) : 0;
+  }
+
+  /**
+   * 解析エンジンのワーカーを停止
+   */
+  public void shutdown() {
+    scheduler.close();
+    if (analysisEngine != null) {
+      analysisEngine.close();
+    }
+  }
+
   // JSON変換用データクラス
   private static class GraphDataJson {
     public java.util.List<NodeJson> nodes;
     public java.util.List<LinkJson> links;
   }
 
+  @SuppressWarnings("all")
+  private static class WorkspaceGraphDataJson extends GraphDataJson {
+    public int analyzedFiles;
+    public int failedFiles;
+    public long graphVersion;
+  }
+
+  @SuppressWarnings("all")
+  private static class GraphChunkJson extends GraphDataJson {
+    public int processedFiles;
+    public int failedFiles;
+    public int totalFiles;
+  }
+
+  @SuppressWarnings("all")
+  private static class CompactWorkspaceGraph extends CompactGraph {
+    public int analyzedFiles;
+    public int failedFiles;
+    public long graphVersion;
+  }
+
+  @SuppressWarnings("all")
+  private static class CompactQueryResult extends CompactGraph {
+    public long graphVersion;
+  }
+
+  @SuppressWarnings("all")
+  private static class CompactGraphChunk extends CompactGraph {
+    public int processedFiles;
+    public int failedFiles;
+    public int totalFiles;
+  }
+
   @SuppressWarnings("all")
   private static class NodeJson {
     public String id;
@@ -154,8 +1131,25 @@ public class DependVizTextDocumentService implements TextDocumentService {
     public String type;
   }
 
-  private GraphDataJson toJsonObject(CodeGraph codeGraph) {
+  /**
+   * 単一ファイルのグラフをgetFileDependencyGraphと同じJSON文字列にする
+   */
+  public static String toJson(CodeGraph codeGraph) throws JsonProcessingException {
     GraphDataJson json = new GraphDataJson();
+    fillJsonObject(json, codeGraph);
+    return MAPPER.writeValueAsString(json);
+  }
+
+  /**
+   * toJsonと同じJSONをストリームへ書き出す（大きなグラフを文字列にせず出力する．ストリームは閉じない）
+   */
+  public static void writeJson(CodeGraph codeGraph, OutputStream out) throws IOException {
+    GraphDataJson json = new GraphDataJson();
+    fillJsonObject(json, codeGraph);
+    MAPPER.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, json);
+  }
+
+  private static void fillJsonObject(GraphDataJson json, CodeGraph codeGraph) {
     json.nodes = new java.util.ArrayList<>();
     json.links = new java.util.ArrayList<>();
 
@@ -176,7 +1170,5 @@ public class DependVizTextDocumentService implements TextDocumentService {
       linkJson.type = edge.getType();
       json.links.add(linkJson);
     }
-
-    return json;
   }
 }
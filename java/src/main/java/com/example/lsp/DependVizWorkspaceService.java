@@ -0,0 +1,49 @@
+package com.example.lsp;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.eclipse.lsp4j.DidChangeConfigurationParams;
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.FileEvent;
+import org.eclipse.lsp4j.services.WorkspaceService;
+
+/**
+ * ワークスペースサービス - ファイル監視イベントを差分解析へ渡す
+ */
+public class DependVizWorkspaceService implements WorkspaceService {
+  private static final Logger logger = Logger.getLogger(DependVizWorkspaceService.class.getName());
+
+  private final DependVizTextDocumentService textDocumentService;
+
+  public DependVizWorkspaceService(DependVizTextDocumentService textDocumentService) {
+    this.textDocumentService = textDocumentService;
+  }
+
+  @Override
+  public void didChangeConfiguration(DidChangeConfigurationParams params) {}
+
+  @Override
+  public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {
+    List<String> createdPaths = new ArrayList<>();
+    List<String> changedPaths = new ArrayList<>();
+    List<String> deletedPaths = new ArrayList<>();
+    for (FileEvent event : params.getChanges()) {
+      String filePath = URI.create(event.getUri()).getPath();
+      switch (event.getType()) {
+        case Created -> createdPaths.add(filePath);
+        case Deleted -> deletedPaths.add(filePath);
+        default -> changedPaths.add(filePath);
+      }
+    }
+    logger.info(
+        () -> String.format(
+            "Watched files changed: %d created, %d changed, %d deleted",
+            createdPaths.size(), changedPaths.size(), deletedPaths.size()));
+
+    // LSPのメッセージスレッドをブロックしないよう非同期で反映
+    textDocumentService.updateWatchedFiles(createdPaths, changedPaths, deletedPaths);
+  }
+}
@@ -0,0 +1,97 @@
+package com.example.lsp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+
+/**
+ * 開いているドキュメントの内容を保持するストア
+ *
+ * didChangeの差分（Incremental同期）を適用し，ディスクではなくエディタ上の最新内容を提供する．
+ */
+public class DocumentStore {
+
+  /** ドキュメントの内容とバージョン */
+  public record Document(int version, String text) {}
+
+  private final Map<String, Document> documents = new ConcurrentHashMap<>();
+
+  public void open(String filePath, int version, String text) {
+    documents.put(filePath, new Document(version, text));
+  }
+
+  /**
+   * 変更イベントを順に適用（rangeがないイベントは全文置換）
+   *
+   * @return 適用後のドキュメント（開かれていない場合はnull）
+   */
+  public Document change(
+      String filePath, int version, List<TextDocumentContentChangeEvent> changes) {
+    return documents.computeIfPresent(
+        filePath,
+        (path, document) -> {
+          String text = document.text();
+          for (TextDocumentContentChangeEvent change : changes) {
+            text = applyChange(text, change);
+          }
+          return new Document(version, text);
+        });
+  }
+
+  public void close(String filePath) {
+    documents.remove(filePath);
+  }
+
+  public Document get(String filePath) {
+    return documents.get(filePath);
+  }
+
+  /** 開いているドキュメントのファイルパス */
+  public Set<String> openPaths() {
+    return Set.copyOf(documents.keySet());
+  }
+
+  private static String applyChange(String text, TextDocumentContentChangeEvent change) {
+    Range range = change.getRange();
+    if (range == null) {
+      return change.getText();
+    }
+    int start = toOffset(text, range.getStart());
+    int end = toOffset(text, range.getEnd());
+    return new StringBuilder(text.length() - (end - start) + change.getText().length())
+        .append(text, 0, start)
+        .append(change.getText())
+        .append(text, end, text.length())
+        .toString();
+  }
+
+  // LSPの位置（行, UTF-16単位の列）を文字列のオフセットへ変換
+  // （LSPと同じく\r\n・\n・\rのいずれも行末とみなす．列が行の長さを超える場合は行末）
+  private static int toOffset(String text, Position position) {
+    int offset = 0;
+    for (int line = 0; line < position.getLine(); line++) {
+      int lineEnd = lineEnd(text, offset);
+      if (lineEnd == text.length()) {
+        return text.length();
+      }
+      offset = text.startsWith("\r\n", lineEnd) ? lineEnd + 2 : lineEnd + 1;
+    }
+    return Math.min(offset + position.getCharacter(), lineEnd(text, offset));
+  }
+
+  // 指定位置から始まる行の行末（改行文字の位置．最終行の場合は文字列の長さ）
+  private static int lineEnd(String text, int from) {
+    for (int i = from; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || c == '\r') {
+        return i;
+      }
+    }
+    return text.length();
+  }
+}
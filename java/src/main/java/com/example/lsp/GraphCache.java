@@ -0,0 +1,158 @@
+package com.example.lsp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.GraphNode;
+
+/**
+ * ファイルパスごとのCodeGraphキャッシュ（スレッドセーフ，LRUで追い出し）
+ *
+ * エントリ数と推定バイト数の両方に上限を持ち，どちらかを超えたら
+ * 最も長く参照されていないエントリから追い出す．
+ *
+ * キャッシュの外で保持するグラフ（ワークスペースグラフのフラグメント）の推定バイト数も
+ * setReservedBytesで予約として同じ上限に数え，その分だけキャッシュを小さくする．
+ * ただし予約はキャッシュから追い出せないため，上限のうちminBytes（既定は1/4）は
+ * 予約に関係なくキャッシュに残す．予約がそれを超えた場合はログに警告する．
+ */
+public class GraphCache {
+  private static final Logger logger = Logger.getLogger(GraphCache.class.getName());
+
+  // 予約に関係なくキャッシュに残す上限の割合（既定値）
+  private static final long DEFAULT_MIN_BYTES_DIVISOR = 4;
+
+  // 推定サイズの係数（GraphNode/GraphEdgeと索引のエントリを含む概算）
+  private static final long BYTES_PER_ENTRY = 128;
+  private static final long BYTES_PER_NODE = 160;
+  private static final long BYTES_PER_EDGE = 120;
+
+  private final long maxEntries;
+  private final long maxBytes;
+  private final long minBytes;
+
+  // アクセス順のLinkedHashMap（全操作をthisで同期）
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long estimatedBytes;
+  private long reservedBytes;
+  // 予約が上限を圧迫していることを警告済みか
+  private boolean reservationWarned;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public GraphCache(long maxEntries, long maxBytes) {
+    this(maxEntries, maxBytes, maxBytes / DEFAULT_MIN_BYTES_DIVISOR);
+  }
+
+  /**
+   * @param minBytes 予約に関係なくキャッシュが使える推定バイト数
+   */
+  public GraphCache(long maxEntries, long maxBytes, long minBytes) {
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.minBytes = Math.min(minBytes, maxBytes);
+  }
+
+  /**
+   * システムプロパティから上限を設定して生成（dependviz.graphCache.maxEntries /
+   * dependviz.graphCache.maxBytes / dependviz.graphCache.minBytes）
+   */
+  public static GraphCache fromSystemProperties(long defaultMaxEntries, long defaultMaxBytes) {
+    long maxBytes = Long.getLong("dependviz.graphCache.maxBytes", defaultMaxBytes);
+    return new GraphCache(
+        Long.getLong("dependviz.graphCache.maxEntries", defaultMaxEntries),
+        maxBytes,
+        Long.getLong("dependviz.graphCache.minBytes", maxBytes / DEFAULT_MIN_BYTES_DIVISOR));
+  }
+
+  public synchronized CodeGraph get(String filePath) {
+    Entry entry = entries.get(filePath);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.graph();
+  }
+
+  public synchronized void put(String filePath, CodeGraph graph) {
+    Entry entry = new Entry(graph, estimateBytes(filePath, graph));
+    Entry previous = entries.put(filePath, entry);
+    if (previous != null) {
+      estimatedBytes -= previous.bytes();
+    }
+    estimatedBytes += entry.bytes();
+    evictIfNeeded();
+  }
+
+  public synchronized void remove(String filePath) {
+    Entry previous = entries.remove(filePath);
+    if (previous != null) {
+      estimatedBytes -= previous.bytes();
+    }
+  }
+
+  /**
+   * キャッシュの外で保持するグラフの推定バイト数を設定し，上限を超えた分を追い出す
+   *
+   * 予約はmaxBytes - minBytesまでしかキャッシュを小さくしない
+   */
+  public synchronized void setReservedBytes(long bytes) {
+    reservedBytes = bytes;
+    boolean exceeded = reservedBytes > maxBytes - minBytes;
+    if (exceeded && !reservationWarned) {
+      logger.warning(
+          () -> String.format(
+              "Workspace graph (%d bytes) exceeds the graph cache budget (%d of %d bytes);"
+                  + " keeping %d bytes for the file cache",
+              reservedBytes, maxBytes - minBytes, maxBytes, minBytes));
+    }
+    reservationWarned = exceeded;
+    evictIfNeeded();
+  }
+
+  public synchronized Stats getStats() {
+    return new Stats(
+        hits, misses, evictions, entries.size(), estimatedBytes, reservedBytes, maxEntries,
+        maxBytes, minBytes);
+  }
+
+  // 最も古いエントリから上限内に収まるまで削除（直前に追加したエントリは残す）
+  private void evictIfNeeded() {
+    long limit = maxBytes - Math.min(reservedBytes, maxBytes - minBytes);
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || estimatedBytes > limit) && entries.size() > 1) {
+      Entry eldest = iterator.next().getValue();
+      iterator.remove();
+      estimatedBytes -= eldest.bytes();
+      evictions++;
+    }
+  }
+
+  /** CodeGraphの保持サイズの概算 */
+  static long estimateBytes(String filePath, CodeGraph graph) {
+    long bytes = BYTES_PER_ENTRY + filePath.length();
+    for (GraphNode node : graph.getGraphNodes()) {
+      bytes += BYTES_PER_NODE + node.getNodeName().length();
+    }
+    return bytes + BYTES_PER_EDGE * graph.getGraphEdges().size();
+  }
+
+  private record Entry(CodeGraph graph, long bytes) {}
+
+  /** キャッシュの統計 */
+  public record Stats(
+      long hits,
+      long misses,
+      long evictions,
+      int entries,
+      long estimatedBytes,
+      long reservedBytes,
+      long maxEntries,
+      long maxBytes,
+      long minBytes) {}
+}
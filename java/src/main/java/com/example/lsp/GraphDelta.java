@@ -0,0 +1,77 @@
+package com.example.lsp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.parser.models.GraphEdge;
+import com.example.parser.models.GraphNode;
+import com.example.parser.models.WorkspaceGraph;
+
+/**
+ * ワークスペースグラフの差分（dependviz/graphDelta 通知の内容）
+ *
+ * baseVersionのグラフにこの差分を適用するとversionのグラフになる．
+ */
+public class GraphDelta {
+  public long baseVersion;
+  public long version;
+
+  public List<NodeEntry> addedNodes = new ArrayList<>();
+  // 属性（種類・行数・ファイルパス）が変わったノード
+  public List<NodeEntry> updatedNodes = new ArrayList<>();
+  public List<String> removedNodes = new ArrayList<>();
+
+  public List<LinkEntry> addedLinks = new ArrayList<>();
+  public List<LinkEntry> removedLinks = new ArrayList<>();
+
+  @SuppressWarnings("all")
+  public static class NodeEntry {
+    public String id;
+    public String name;
+    public String type;
+    public int linesOfCode;
+    public String filePath;
+
+    NodeEntry(GraphNode node) {
+      this.id = node.getId();
+      this.name = node.getNodeName();
+      this.type = node.getType();
+      this.linesOfCode = node.getLinesOfCode();
+      this.filePath = node.getFilePath();
+    }
+  }
+
+  @SuppressWarnings("all")
+  public static class LinkEntry {
+    public String source;
+    public String target;
+    public String type;
+
+    LinkEntry(GraphEdge edge) {
+      this.source = edge.getSourceNode().getId();
+      this.target = edge.getTargetNode().getId();
+      this.type = edge.getType();
+    }
+  }
+
+  public boolean isEmpty() {
+    return addedNodes.isEmpty()
+        && updatedNodes.isEmpty()
+        && removedNodes.isEmpty()
+        && addedLinks.isEmpty()
+        && removedLinks.isEmpty();
+  }
+
+  /**
+   * ワークスペースグラフの変化から差分を作る
+   */
+  static GraphDelta from(WorkspaceGraph.Change change) {
+    GraphDelta delta = new GraphDelta();
+    change.addedNodes().forEach(node -> delta.addedNodes.add(new NodeEntry(node)));
+    change.updatedNodes().forEach(node -> delta.updatedNodes.add(new NodeEntry(node)));
+    delta.removedNodes.addAll(change.removedNodes());
+    change.addedEdges().forEach(edge -> delta.addedLinks.add(new LinkEntry(edge)));
+    change.removedEdges().forEach(edge -> delta.removedLinks.add(new LinkEntry(edge)));
+    return delta;
+  }
+}
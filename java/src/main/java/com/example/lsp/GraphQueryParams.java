@@ -0,0 +1,85 @@
+package com.example.lsp;
+
+import java.util.List;
+
+/**
+ * dependviz/getNeighborhood・getSlice・getShortestPath・getCycles のパラメータ
+ *
+ * getCyclesはedgeTypesとlevelのみ使用する
+ */
+public class GraphQueryParams {
+  // 起点のノードID（未指定の場合はfilePathで宣言されたノードを起点にする）
+  private String nodeId;
+  private String filePath;
+
+  // 最短経路の終点のノードID
+  private String targetId;
+
+  // 最大ホップ数（負の場合は無制限）
+  private Integer depth;
+
+  // "forward"（依存先）・"backward"（依存元）・"both"
+  private String direction;
+
+  // 循環を調べる粒度（"class"（既定）・"package"・"module"）
+  private String level;
+
+  // たどるエッジの種類（"Extends" など．未指定・空の場合は全種類）
+  private List<String> edgeTypes;
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  public void setNodeId(String nodeId) {
+    this.nodeId = nodeId;
+  }
+
+  public String getFilePath() {
+    return filePath;
+  }
+
+  public void setFilePath(String filePath) {
+    this.filePath = filePath;
+  }
+
+  public String getTargetId() {
+    return targetId;
+  }
+
+  public void setTargetId(String targetId) {
+    this.targetId = targetId;
+  }
+
+  public Integer getDepth() {
+    return depth;
+  }
+
+  public void setDepth(Integer depth) {
+    this.depth = depth;
+  }
+
+  public String getDirection() {
+    return direction;
+  }
+
+  public void setDirection(String direction) {
+    this.direction = direction;
+  }
+
+  public String getLevel() {
+    return level;
+  }
+
+  public void setLevel(String level) {
+    this.level = level;
+  }
+
+  public List<String> getEdgeTypes() {
+    return edgeTypes;
+  }
+
+  public void setEdgeTypes(List<String> edgeTypes) {
+    this.edgeTypes = edgeTypes;
+  }
+}
@@ -0,0 +1,17 @@
+package com.example.lsp;
+
+/**
+ * dependviz/getMetrics のパラメータ
+ */
+public class MetricsParams {
+  // 読み取った後に計測値を0へ戻すか（未指定はfalse）
+  private Boolean reset;
+
+  public Boolean getReset() {
+    return reset;
+  }
+
+  public void setReset(Boolean reset) {
+    this.reset = reset;
+  }
+}
@@ -0,0 +1,90 @@
+package com.example.lsp;
+
+import java.util.function.Consumer;
+
+import com.example.parser.AnalysisListener;
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.SymbolTable;
+
+/**
+ * ワークスペース解析の途中結果をチャンクにまとめて送出するリスナー
+ *
+ * 解析が完了したファイルのグラフを溜め込み，一定ファイル数または一定時間ごとに
+ * 1つのチャンクとして送る．通知が多すぎるとクライアント側の再描画が追いつかないため．
+ */
+class PartialResultStreamer implements AnalysisListener {
+  /**
+   * 送出する途中結果（前回のチャンク以降に完了したファイルのグラフと進捗）
+   */
+  record Chunk(CodeGraph graph, int processedFiles, int failedFiles, int totalFiles) {}
+
+  private final int maxFilesPerChunk;
+  private final long maxIntervalNanos;
+  private final Consumer<Chunk> sink;
+  private final SymbolTable symbols;
+
+  private CodeGraph pending;
+  private int pendingFiles;
+  private int processedFiles;
+  private int failedFiles;
+  private int totalFiles;
+  private long lastFlushNanos = System.nanoTime();
+
+  /**
+   * @param maxFilesPerChunk 1チャンクに含める最大ファイル数
+   * @param maxIntervalMillis チャンクを送る最大間隔
+   * @param symbols チャンクのグラフで名前を共有するシンボル表（解析エンジンのもの）
+   * @param sink チャンクの送出先
+   */
+  PartialResultStreamer(
+      int maxFilesPerChunk, long maxIntervalMillis, SymbolTable symbols, Consumer<Chunk> sink) {
+    this.maxFilesPerChunk = maxFilesPerChunk;
+    this.maxIntervalNanos = maxIntervalMillis * 1_000_000;
+    this.symbols = symbols;
+    this.sink = sink;
+    this.pending = new CodeGraph(symbols);
+  }
+
+  @Override
+  public void onStarted(int totalFiles) {
+    this.totalFiles = totalFiles;
+  }
+
+  @Override
+  public void onFileAnalyzed(String filePath, CodeGraph graph) {
+    pending.merge(graph);
+    pendingFiles++;
+    processedFiles++;
+    flushIfDue();
+  }
+
+  @Override
+  public void onFileFailed(String filePath, Throwable error) {
+    processedFiles++;
+    failedFiles++;
+    flushIfDue();
+  }
+
+  /**
+   * 残っている途中結果を送出
+   */
+  void finish() {
+    if (pendingFiles > 0) {
+      flush();
+    }
+  }
+
+  private void flushIfDue() {
+    if (pendingFiles >= maxFilesPerChunk
+        || (pendingFiles > 0 && System.nanoTime() - lastFlushNanos >= maxIntervalNanos)) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    sink.accept(new Chunk(pending, processedFiles, failedFiles, totalFiles));
+    pending = new CodeGraph(symbols);
+    pendingFiles = 0;
+    lastFlushNanos = System.nanoTime();
+  }
+}
@@ -0,0 +1,20 @@
+package com.example.lsp;
+
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+
+/**
+ * dependviz/getWorkspaceDependencyGraph・getCompactWorkspaceDependencyGraph のパラメータ
+ */
+public class WorkspaceGraphParams {
+  // 指定された場合，途中結果を $/progress で送る（LSPのpartial resultと同じ形式．
+  // トークンはProgressTokenと同じく文字列または整数）
+  private Either<String, Integer> partialResultToken;
+
+  public Either<String, Integer> getPartialResultToken() {
+    return partialResultToken;
+  }
+
+  public void setPartialResultToken(Either<String, Integer> partialResultToken) {
+    this.partialResultToken = partialResultToken;
+  }
+}
@@ -1,14 +1,39 @@
 package com.example.parser;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import com.example.parser.index.AnalysisIndex;
+import com.example.parser.jfr.AnalysisEvents;
+import com.example.parser.jfr.CacheLookupEvent;
+import com.example.parser.jfr.ParseEvent;
+import com.example.parser.metrics.StageMetrics;
 import com.example.parser.models.CodeGraph;
+import com.example.parser.models.SymbolTable;
+import com.example.parser.models.WorkspaceGraph;
+import com.example.parser.resolution.ResolutionCache;
 import com.example.parser.stages.BaseStage;
 import com.example.parser.stages.ClassTypeStage;
 import com.example.parser.stages.ExtendsStage;
@@ -17,93 +42,557 @@ import com.example.parser.stages.ImplementsStage;
 import com.example.parser.stages.LinesOfCodeStage;
 import com.example.parser.stages.MethodCallStage;
 import com.example.parser.stages.ObjectCreationStage;
+import com.example.parser.stages.StagePipeline;
 import com.example.parser.stages.TypeUseStage;
-import com.github.javaparser.ParserConfiguration;
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
 
 /**
  * 解析エンジン - 既存のステージロジックをラップ
  */
-public class AnalysisEngine {
+public class AnalysisEngine implements AutoCloseable {
   private static final Logger logger = Logger.getLogger(AnalysisEngine.class.getName());
 
-  private final CombinedTypeSolver typeSolver;
-  private final List<BaseStage> stages;
+  // 解析結果の形式が変わる変更を行ったら上げる（永続インデックスの無効化に使用）
+  private static final String ANALYZER_VERSION = "1";
+
+  // 結果待ちの間にキャンセルを確認する間隔
+  private static final long CANCEL_POLL_MILLIS = 50;
+
+  // パーサーごとのJavaParserTypeSolverがキャッシュする解析済みファイル・型の既定の上限
+  private static final long DEFAULT_TYPE_SOLVER_CACHE_SIZE = 1_000;
+
+  // 未保存の内容がない（全ファイルをディスクから読む）
+  private static final Function<String, String> NO_UNSAVED_SOURCES = filePath -> null;
+
+  private final Path workspaceRoot;
+  private final Path sourceRoot;
+  private final StagePipeline pipeline;
+
+  // このエンジンのグラフ・キャッシュ・インデックスで名前を共有するシンボル表（弱参照）
+  private final SymbolTable symbols = new SymbolTable();
+
+  // 型解決キャッシュ（全スレッド・全ファイルで共有）
+  private final ResolutionCache resolutionCache;
+
+  // 構文解析の計測値（成否はノードではなくファイル単位で数える）
+  private final StageMetrics parseMetrics = new StageMetrics("Parse");
+
+  // ファイル単位の解析結果の永続インデックス（無効時はnull）
+  private final AnalysisIndex index;
+
+  // JavaParserとTypeSolverのプール（ワーカー数まで．解析のたびに借りて返す）
+  private final ParserPool parsers;
+
+  // ワークスペース解析用のワーカープール（スレッド数は既定でコア数）
+  private final ExecutorService workers;
 
   public AnalysisEngine(String workspaceRoot) {
-    // TypeSolverの初期化
-    this.typeSolver = new CombinedTypeSolver();
-    this.typeSolver.add(new ReflectionTypeSolver());
+    this(workspaceRoot, StagePipeline.Mode.FUSED);
+  }
+
+  public AnalysisEngine(String workspaceRoot, StagePipeline.Mode pipelineMode) {
+    this(workspaceRoot, pipelineMode, defaultIndexDirectory(workspaceRoot));
+  }
+
+  /**
+   * @param indexDirectory 永続インデックスの保存先（nullの場合はインデックスを使用しない）
+   */
+  public AnalysisEngine(
+      String workspaceRoot, StagePipeline.Mode pipelineMode, Path indexDirectory) {
+    this(workspaceRoot, pipelineMode, indexDirectory, 0);
+  }
+
+  /**
+   * @param indexDirectory 永続インデックスの保存先（nullの場合はインデックスを使用しない）
+   * @param threads ワークスペース解析のワーカー数（0以下の場合はコア数）
+   */
+  public AnalysisEngine(
+      String workspaceRoot, StagePipeline.Mode pipelineMode, Path indexDirectory, int threads) {
+    this.workspaceRoot = Paths.get(workspaceRoot);
 
     // ソースルートを探索
-    Path sourceRoot = findSourceRoot(Paths.get(workspaceRoot));
-    if (sourceRoot != null) {
-      logger.log(Level.INFO, "Found source root: {0}", sourceRoot);
-      this.typeSolver.add(new JavaParserTypeSolver(sourceRoot.toFile()));
+    Path foundSourceRoot = findSourceRoot(this.workspaceRoot);
+    if (foundSourceRoot != null) {
+      logger.log(Level.INFO, "Found source root: {0}", foundSourceRoot);
+      this.sourceRoot = foundSourceRoot;
     } else {
       logger.log(Level.WARNING, "Source root not found, using workspace root: {0}", workspaceRoot);
-      this.typeSolver.add(new JavaParserTypeSolver(new File(workspaceRoot)));
+      this.sourceRoot = this.workspaceRoot;
     }
 
     // ステージのパイプライン構築（TypeSolverは各Stageで内部設定）
-    this.stages = new ArrayList<>();
-    this.stages.add(new TypeUseStage());
-    this.stages.add(new MethodCallStage());
-    this.stages.add(new ObjectCreationStage());
-    this.stages.add(new ExtendsStage());
-    this.stages.add(new ImplementsStage());
-    this.stages.add(new ClassTypeStage());
-    this.stages.add(new LinesOfCodeStage());
-    this.stages.add(new FilePathStage());
+    this.resolutionCache = new ResolutionCache(symbols);
+    List<BaseStage> stages = new ArrayList<>();
+    stages.add(new TypeUseStage(resolutionCache));
+    stages.add(new MethodCallStage());
+    stages.add(new ObjectCreationStage(resolutionCache));
+    stages.add(new ExtendsStage(resolutionCache));
+    stages.add(new ImplementsStage(resolutionCache));
+    stages.add(new ClassTypeStage());
+    stages.add(new LinesOfCodeStage());
+    stages.add(new FilePathStage());
+    this.pipeline = new StagePipeline(stages, pipelineMode);
+
+    if (indexDirectory != null) {
+      this.index = new AnalysisIndex(indexDirectory, analyzerVersion(stages), symbols);
+      this.index.load();
+    } else {
+      this.index = null;
+    }
+
+    int workerCount =
+        threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors());
+    this.workers = Executors.newFixedThreadPool(workerCount, new WorkerThreadFactory());
+    // TypeSolverのキャッシュ上限はシステムプロパティで変更可能（dependviz.typeSolver.cacheSize）
+    this.parsers =
+        new ParserPool(
+            sourceRoot,
+            workerCount,
+            Long.getLong("dependviz.typeSolver.cacheSize", DEFAULT_TYPE_SOLVER_CACHE_SIZE));
 
-    logger.log(Level.INFO, "Analysis engine initialized with {0} stages", stages.size());
+    logger.log(
+        Level.INFO,
+        "Analysis engine initialized with {0} stages ({1}), {2} workers",
+        new Object[] {stages.size(), pipelineMode, workerCount});
   }
 
   /**
-   * 単一ファイルを解析
+   * 単一ファイルを解析（内容が変わっていなければインデックスの結果を返す）
+   *
+   * インデックスから返したグラフは共有されるため，呼び出し側で変更しないこと
    */
   public CodeGraph analyzeFile(String filePath) throws Exception {
-    logger.log(Level.INFO, "Analyzing file: {0}", filePath);
+    return analyzeFile(filePath, Cancellation.NONE);
+  }
+
+  /**
+   * 単一ファイルを解析（キャンセルされた場合はCancellationExceptionで中断）
+   */
+  public CodeGraph analyzeFile(String filePath, Cancellation cancellation) throws Exception {
+    cancellation.checkCanceled();
+    byte[] content = Files.readAllBytes(Paths.get(filePath));
+    return analyzeContent(filePath, content, true, cancellation);
+  }
+
+  /**
+   * エディタ上の未保存の内容を解析（ディスクを読まない）
+   *
+   * インデックスはディスク上の内容を表すため，参照のみ行い更新しない
+   */
+  public CodeGraph analyzeSource(String filePath, String text) throws Exception {
+    return analyzeSource(filePath, text, Cancellation.NONE);
+  }
+
+  /**
+   * エディタ上の未保存の内容を解析（キャンセルされた場合はCancellationExceptionで中断）
+   */
+  public CodeGraph analyzeSource(String filePath, String text, Cancellation cancellation)
+      throws Exception {
+    return analyzeContent(filePath, text.getBytes(StandardCharsets.UTF_8), false, cancellation);
+  }
 
-    CodeGraph codeGraph = new CodeGraph();
+  /**
+   * ファイルを構文解析のみ行う（ステージは実行せず，インデックスも参照しない）
+   *
+   * ステージを個別に計測するためのもの．返したCompilationUnitはプールのパーサーの
+   * シンボルソルバーに結び付いているため，他の解析と並行してステージを実行しないこと
+   */
+  public CompilationUnit parseFile(String filePath) throws IOException, InterruptedException {
+    Path path = Paths.get(filePath);
+    byte[] content = Files.readAllBytes(path);
+    ParserPool.PooledParser parser = parsers.acquire(Cancellation.NONE);
     try {
-      CompilationUnit cu = createCompilationUnit(filePath, typeSolver);
+      return createCompilationUnit(parser.parser(), path, content);
+    } finally {
+      parsers.release(parser);
+    }
+  }
+
+  private CodeGraph analyzeContent(
+      String filePath, byte[] content, boolean updateIndex, Cancellation cancellation)
+      throws Exception {
+    cancellation.checkCanceled();
+    String contentHash = null;
+    if (index != null) {
+      contentHash = AnalysisIndex.hash(content);
+      CodeGraph indexed = index.lookup(filePath, contentHash);
+      CacheLookupEvent.index(
+          indexed != null ? "hit" : "miss",
+          filePath,
+          indexed != null ? indexed.getGraphNodes().size() : 0);
+      if (indexed != null) {
+        logger.log(Level.FINE, "Loaded from index: {0}", filePath);
+        return indexed;
+      }
+    }
 
-      // パイプラインとして順に実行
-      for (BaseStage stage : stages) {
-        stage.process(cu, codeGraph);
+    logger.log(Level.INFO, "Analyzing file: {0}", filePath);
+
+    CodeGraph codeGraph = new CodeGraph(symbols);
+    // ステージの型解決もパーサーのシンボルソルバーを使うため，パイプラインの完了まで借りる
+    ParserPool.PooledParser parser = parsers.acquire(cancellation);
+    try {
+      StageMetrics.Span parse = StageMetrics.Span.start();
+      CompilationUnit cu;
+      try {
+        cu = createCompilationUnit(parser.parser(), Paths.get(filePath), content);
+        parseMetrics.recordResolved();
+      } catch (RuntimeException e) {
+        parseMetrics.recordFailed();
+        throw e;
+      } finally {
+        parse.finish(parseMetrics);
       }
+      cancellation.checkCanceled();
+
+      // パイプラインとして実行（FUSEDモードではASTを一度だけ走査）
+      pipeline.process(cu, codeGraph, cancellation);
 
       logger.log(
           Level.INFO,
           "Analysis completed: {0} nodes, {1} edges",
           new Object[] {codeGraph.getGraphNodes().size(), codeGraph.getGraphEdges().size()});
 
+    } catch (CancellationException e) {
+      logger.log(Level.FINE, "Analysis canceled: {0}", filePath);
+      throw e;
     } catch (Exception e) {
       logger.log(Level.WARNING, e, () -> "Failed to parse file: " + filePath);
       throw e;
+    } finally {
+      parsers.release(parser);
     }
 
+    if (index != null && updateIndex) {
+      index.put(filePath, contentHash, codeGraph);
+    }
     return codeGraph;
   }
 
   /**
-   * CompilationUnitを作成（既存のMain.javaから移植）
+   * ワークスペース内の全Javaファイルを並列に解析し，ワークスペースグラフへマージ
+   */
+  public WorkspaceAnalysis analyzeWorkspace() throws IOException, InterruptedException {
+    return analyzeWorkspace(new AnalysisListener() {}, Cancellation.NONE);
+  }
+
+  /**
+   * ワークスペース内の全Javaファイルを並列に解析し，ワークスペースグラフへマージ
+   *
+   * @param listener ファイル単位の解析結果を完了順に受け取るリスナー（呼び出し元スレッドで実行）
+   * @param cancellation キャンセルされた場合は残りの解析を止めてCancellationExceptionを投げる
+   */
+  public WorkspaceAnalysis analyzeWorkspace(AnalysisListener listener, Cancellation cancellation)
+      throws IOException, InterruptedException {
+    return analyzeWorkspace(listener, cancellation, NO_UNSAVED_SOURCES);
+  }
+
+  /**
+   * ワークスペース内の全Javaファイルを並列に解析し，ワークスペースグラフへマージ
+   *
+   * @param listener ファイル単位の解析結果を完了順に受け取るリスナー（呼び出し元スレッドで実行）
+   * @param cancellation キャンセルされた場合は残りの解析を止めてCancellationExceptionを投げる
+   * @param unsavedSources ファイルパス -> エディタ上の未保存の内容（ない場合はnullを返す）．
+   *     内容があるファイルはディスクを読まずにその内容を解析する
+   */
+  public WorkspaceAnalysis analyzeWorkspace(
+      AnalysisListener listener,
+      Cancellation cancellation,
+      Function<String, String> unsavedSources)
+      throws IOException, InterruptedException {
+    List<Path> files = findSourceFiles();
+    cancellation.checkCanceled();
+    logger.log(Level.INFO, "Analyzing workspace: {0} files", files.size());
+
+    Map<String, CodeGraph> results = new HashMap<>();
+    int failedFiles =
+        analyzeFiles(
+            files,
+            new AnalysisListener() {
+              @Override
+              public void onStarted(int totalFiles) {
+                listener.onStarted(totalFiles);
+              }
+
+              @Override
+              public void onFileAnalyzed(String filePath, CodeGraph graph) {
+                results.put(filePath, graph);
+                listener.onFileAnalyzed(filePath, graph);
+              }
+
+              @Override
+              public void onFileFailed(String filePath, Throwable error) {
+                listener.onFileFailed(filePath, error);
+              }
+            },
+            cancellation,
+            unsavedSources);
+
+    // 結果の順序を安定させるため完了順ではなくファイルパス順にマージ
+    WorkspaceGraph workspaceGraph = new WorkspaceGraph(symbols, results);
+    CodeGraph merged = workspaceGraph.getGraph();
+
+    logger.log(
+        Level.INFO,
+        "Workspace analysis completed: {0} files ({1} failed), {2} nodes, {3} edges",
+        new Object[] {
+          files.size(), failedFiles, merged.getGraphNodes().size(), merged.getGraphEdges().size()
+        });
+    logger.log(Level.INFO, "Resolution cache: {0}", resolutionCache.getStats());
+    if (index != null) {
+      // 削除されたファイルのエントリを除いて保存
+      index.retainAll(files.stream().map(Path::toString).toList());
+      index.save();
+    }
+    return new WorkspaceAnalysis(workspaceGraph, files.size() - failedFiles, failedFiles);
+  }
+
+  /**
+   * 指定ファイルをワーカープールで並列に解析
+   *
+   * @param listener 解析結果を完了順に受け取るリスナー（呼び出し元スレッドで実行）
+   * @return 解析に失敗したファイル数
+   */
+  public int analyzeFiles(List<Path> files, AnalysisListener listener)
+      throws InterruptedException {
+    return analyzeFiles(files, listener, Cancellation.NONE);
+  }
+
+  /**
+   * 指定ファイルをワーカープールで並列に解析
+   *
+   * キャンセルは各ワーカーのチェックポイントと，結果待ちの間も定期的に確認する．
+   * キャンセル時は未完了の解析を中断してCancellationExceptionを投げる．
+   *
+   * @param listener 解析結果を完了順に受け取るリスナー（呼び出し元スレッドで実行）
+   * @return 解析に失敗したファイル数
+   */
+  public int analyzeFiles(List<Path> files, AnalysisListener listener, Cancellation cancellation)
+      throws InterruptedException {
+    return analyzeFiles(files, listener, cancellation, NO_UNSAVED_SOURCES);
+  }
+
+  /**
+   * 指定ファイルをワーカープールで並列に解析（未保存の内容があるファイルはその内容を解析）
+   *
+   * @param unsavedSources ファイルパス -> エディタ上の未保存の内容（ない場合はnullを返す）．
+   *     ワーカーがファイルを解析する直前に呼ぶ
+   * @return 解析に失敗したファイル数
+   */
+  public int analyzeFiles(
+      List<Path> files,
+      AnalysisListener listener,
+      Cancellation cancellation,
+      Function<String, String> unsavedSources)
+      throws InterruptedException {
+    CompletionService<CodeGraph> completion = new ExecutorCompletionService<>(workers);
+    Map<Future<CodeGraph>, Path> pending = new HashMap<>();
+    for (Path file : files) {
+      String filePath = file.toString();
+      pending.put(
+          completion.submit(
+              () -> {
+                String text = unsavedSources.apply(filePath);
+                return text != null
+                    ? analyzeSource(filePath, text, cancellation)
+                    : analyzeFile(filePath, cancellation);
+              }),
+          file);
+    }
+    listener.onStarted(files.size());
+
+    int failedFiles = 0;
+    try {
+      int completed = 0;
+      while (completed < files.size()) {
+        cancellation.checkCanceled();
+        Future<CodeGraph> future = completion.poll(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (future == null) {
+          continue;
+        }
+        completed++;
+        String filePath = pending.remove(future).toString();
+        try {
+          listener.onFileAnalyzed(filePath, future.get());
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof CancellationException canceled) {
+            throw canceled;
+          }
+          failedFiles++;
+          listener.onFileFailed(filePath, e.getCause());
+        }
+      }
+    } catch (InterruptedException | CancellationException e) {
+      pending.keySet().forEach(future -> future.cancel(true));
+      throw e;
+    }
+    return failedFiles;
+  }
+
+  /**
+   * ソースの追加・変更・削除を反映する
+   *
+   * 各パーサーのTypeSolverのキャッシュから該当ファイルのエントリだけを取り除く．
+   * 型解決キャッシュは宣言された型の増減にのみ依存するため，invalidateTypesで別に扱う．
+   * 削除されたファイルはインデックスからも除く．
+   *
+   * @param changedFiles 追加・変更されたファイル
+   * @param deletedFiles 削除されたファイル
+   */
+  public void invalidateSources(Collection<Path> changedFiles, Collection<Path> deletedFiles) {
+    List<Path> files = new ArrayList<>(changedFiles);
+    files.addAll(deletedFiles);
+    parsers.invalidateFiles(files);
+    if (index != null) {
+      deletedFiles.forEach(path -> index.remove(path.toString()));
+    }
+  }
+
+  /**
+   * 内容は変わっていないが解析結果が変わりうるファイル（参照する型が増減したファイル）の
+   * インデックスのエントリを破棄する
+   */
+  public void invalidateIndex(Collection<Path> files) {
+    if (index != null) {
+      files.forEach(path -> index.remove(path.toString()));
+    }
+  }
+
+  /**
+   * 宣言された型の追加・削除を反映する（結果が変わりうる型解決のエントリだけを破棄）
+   *
+   * @param qualifiedNames 追加・削除された型の完全修飾名
+   */
+  public void invalidateTypes(Collection<String> qualifiedNames) {
+    resolutionCache.invalidate(qualifiedNames);
+    parsers.invalidateTypes(qualifiedNames);
+  }
+
+  /**
+   * ワークスペース解析の対象となるJavaファイルか
+   */
+  public boolean isSourceFile(Path path) {
+    return path.startsWith(workspaceRoot)
+        && path.toString().endsWith(".java")
+        && !isExcluded(workspaceRoot.relativize(path));
+  }
+
+  public Path getWorkspaceRoot() {
+    return workspaceRoot;
+  }
+
+  /**
+   * 構文解析と各ステージの計測値（構文解析，ステージ登録順）
+   */
+  public List<StageMetrics.Snapshot> getMetrics() {
+    List<StageMetrics.Snapshot> snapshots = new ArrayList<>();
+    snapshots.add(parseMetrics.snapshot());
+    for (BaseStage stage : pipeline.getStages()) {
+      snapshots.add(stage.getMetrics().snapshot());
+    }
+    return snapshots;
+  }
+
+  /**
+   * FUSEDモードで走査を共有するステージの時間・割り当てバイト数を計測するか（既定は無効）
+   */
+  public void setNodeTiming(boolean enabled) {
+    pipeline.setNodeTiming(enabled);
+  }
+
+  public void resetMetrics() {
+    parseMetrics.reset();
+    pipeline.getStages().forEach(stage -> stage.getMetrics().reset());
+  }
+
+  /**
+   * このエンジンのグラフ・キャッシュで名前を共有するシンボル表
+   */
+  public SymbolTable getSymbols() {
+    return symbols;
+  }
+
+  public ResolutionCache getResolutionCache() {
+    return resolutionCache;
+  }
+
+  /**
+   * ワークスペース配下のJavaファイルを列挙（node_modulesと隠しディレクトリは除外）
+   */
+  public List<Path> findSourceFiles() throws IOException {
+    try (Stream<Path> paths = Files.walk(workspaceRoot)) {
+      return paths
+          .filter(path -> !isExcluded(workspaceRoot.relativize(path)))
+          .filter(path -> path.toString().endsWith(".java"))
+          .filter(Files::isRegularFile)
+          .sorted()
+          .toList();
+    }
+  }
+
+  @Override
+  public void close() {
+    workers.shutdownNow();
+    parsers.close();
+    if (index != null) {
+      index.close();
+    }
+  }
+
+  private static boolean isExcluded(Path relativePath) {
+    for (Path segment : relativePath) {
+      String name = segment.toString();
+      if (name.equals("node_modules") || (name.startsWith(".") && name.length() > 1)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * CompilationUnitを作成（借りたパーサーを使用）
    */
   private static CompilationUnit createCompilationUnit(
-      String filePath, CombinedTypeSolver typeSolver) throws Exception {
-    ParserConfiguration parserConfiguration = new ParserConfiguration();
-    JavaSymbolSolver symbolSolver = new JavaSymbolSolver(typeSolver);
-    parserConfiguration.setSymbolResolver(symbolSolver);
-    // TODO: 言語レベルの対応
-    parserConfiguration.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
-    StaticJavaParser.setConfiguration(parserConfiguration);
-    return StaticJavaParser.parse(Paths.get(filePath));
+      JavaParser parser, Path path, byte[] content) {
+    ParseEvent event = new ParseEvent();
+    event.begin();
+    ParseResult<CompilationUnit> result =
+        parser.parse(new String(content, StandardCharsets.UTF_8));
+    boolean success = result.isSuccessful() && result.getResult().isPresent();
+    event.end();
+    if (event.shouldCommit()) {
+      event.filePath = path.toString();
+      event.size = content.length;
+      event.nodeCount = result.getResult().map(AnalysisEvents::countNodes).orElse(0);
+      event.problemCount = result.getProblems().size();
+      event.success = success;
+      event.commit();
+    }
+    if (!success) {
+      throw new ParseProblemException(result.getProblems());
+    }
+    CompilationUnit cu = result.getResult().get();
+    // FilePathStageが参照するファイルパスを設定
+    cu.setStorage(path, StandardCharsets.UTF_8);
+    return cu;
+  }
+
+  /**
+   * 永続インデックスの既定の保存先（言語サーバーとバッチ解析で共有）
+   */
+  public static Path defaultIndexDirectory(String workspaceRoot) {
+    return Paths.get(workspaceRoot, ".vscode", "dependviz", "index");
+  }
+
+  private static String analyzerVersion(List<BaseStage> stages) {
+    StringBuilder version = new StringBuilder(ANALYZER_VERSION);
+    for (BaseStage stage : stages) {
+      version.append(':').append(stage.getClass().getSimpleName());
+    }
+    return version.toString();
   }
 
   /**
@@ -120,4 +609,16 @@ public class AnalysisEngine {
     }
     return null;
   }
+
+  // ワーカースレッドはデーモンにしてLSP終了を妨げない
+  private static final class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "dependviz-analysis-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
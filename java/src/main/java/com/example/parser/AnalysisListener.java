@@ -0,0 +1,25 @@
+package com.example.parser;
+
+import com.example.parser.models.CodeGraph;
+
+/**
+ * 複数ファイル解析の進捗を受け取るリスナー
+ *
+ * 各メソッドは解析を呼び出したスレッドで，ファイルの解析が完了した順に呼ばれる．
+ */
+public interface AnalysisListener {
+  /**
+   * 解析開始時に対象ファイル数を通知
+   */
+  default void onStarted(int totalFiles) {}
+
+  /**
+   * ファイルの解析に成功した
+   */
+  default void onFileAnalyzed(String filePath, CodeGraph graph) {}
+
+  /**
+   * ファイルの解析に失敗した
+   */
+  default void onFileFailed(String filePath, Throwable error) {}
+}
@@ -0,0 +1,31 @@
+package com.example.parser;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * 解析のキャンセル確認
+ *
+ * 解析はファイル間・ステージ間・AST走査中のチェックポイントで確認し，
+ * キャンセルされていればCancellationExceptionで中断する．
+ */
+@FunctionalInterface
+public interface Cancellation {
+  /** キャンセルされない */
+  Cancellation NONE = () -> {};
+
+  /**
+   * キャンセルされていればCancellationExceptionを投げる
+   */
+  void checkCanceled();
+
+  /**
+   * 現在のスレッドへの割り込みをキャンセルとして扱う
+   */
+  static Cancellation ofCurrentThread() {
+    return () -> {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("Analysis interrupted");
+      }
+    };
+  }
+}
@@ -0,0 +1,280 @@
+package com.example.parser;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.cache.GuavaCache;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 解析に使うJavaParser（とSymbolSolver・TypeSolver）のプール
+ *
+ * TypeSolverの内部キャッシュはスレッドセーフでないため，1つのパーサーは同時に1スレッドだけが
+ * 借りて使う．パーサーはTypeSolverごとに解析済みソースをキャッシュするので，数を上限
+ * （ワーカー数）までに抑え，全て使用中の場合は返却を待つ．どのスレッドが解析しても
+ * （ワーカー・スケジューラ・リクエスト処理）同じパーサーを使い回す．
+ *
+ * TypeSolverのキャッシュは外から参照できるよう自前で渡し，ソースの変更時は
+ * 全パーサーを作り直さずに，変更されたファイル・型のエントリだけを取り除く．
+ */
+final class ParserPool {
+  // 返却待ちの間にキャンセルを確認する間隔
+  private static final long POLL_MILLIS = 50;
+
+  private final Path sourceRoot;
+  private final int capacity;
+  private final long typeSolverCacheSize;
+
+  // 返却済みのパーサー
+  private final BlockingQueue<PooledParser> idle = new LinkedBlockingQueue<>();
+
+  // 使用中を含む現在の世代の全パーサー（キャッシュのエントリを取り除くために保持）
+  private final Set<PooledParser> live = ConcurrentHashMap.newKeySet();
+
+  // 生成済みのパーサー数と世代（thisで保護）
+  private int created;
+  private int generation;
+  private boolean closed;
+
+  /**
+   * @param capacity パーサー数の上限
+   * @param typeSolverCacheSize JavaParserTypeSolverがキャッシュする解析済みファイル・型の上限
+   */
+  ParserPool(Path sourceRoot, int capacity, long typeSolverCacheSize) {
+    this.sourceRoot = sourceRoot;
+    this.capacity = capacity;
+    this.typeSolverCacheSize = typeSolverCacheSize;
+  }
+
+  /**
+   * パーサーを借りる（全て使用中の場合は返却を待つ．使い終わったらreleaseで返すこと）
+   */
+  PooledParser acquire(Cancellation cancellation) throws InterruptedException {
+    while (true) {
+      cancellation.checkCanceled();
+      PooledParser parser = idle.poll();
+      if (parser == null) {
+        parser = createIfBelowCapacity();
+      }
+      if (parser == null) {
+        parser = idle.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      }
+      if (parser != null && isCurrent(parser)) {
+        return parser;
+      }
+      if (parser != null) {
+        discard(parser);
+      }
+    }
+  }
+
+  /**
+   * 借りたパーサーを返す（破棄された世代のものは捨てる）
+   */
+  void release(PooledParser parser) {
+    if (isCurrent(parser)) {
+      idle.offer(parser);
+    } else {
+      discard(parser);
+    }
+  }
+
+  /**
+   * 全てのパーサーを破棄し，次回から作り直させる（使用中のものは返却時に捨てる）
+   */
+  synchronized void invalidate() {
+    generation++;
+    List<PooledParser> drained = drainIdle();
+    created -= drained.size();
+    drained.forEach(ParserPool::releaseCaches);
+    live.clear();
+  }
+
+  /**
+   * 変更・追加・削除されたファイルを各パーサーのTypeSolverのキャッシュから取り除く
+   *
+   * 解析済みのファイルと，そのディレクトリの一覧，そのファイルで宣言された型の解決結果が対象．
+   * キャッシュはスレッドセーフなため，使用中のパーサーのものも取り除ける．
+   */
+  void invalidateFiles(Collection<Path> files) {
+    Set<Path> paths = new HashSet<>();
+    Set<Path> directories = new HashSet<>();
+    for (Path file : files) {
+      Path path = normalize(file);
+      paths.add(path);
+      directories.add(path.getParent());
+    }
+    for (PooledParser parser : live) {
+      SourceCaches caches = parser.caches();
+      caches.parsedFiles().asMap().keySet().removeIf(path -> paths.contains(normalize(path)));
+      caches.parsedDirectories().asMap().keySet()
+          .removeIf(directory -> directories.contains(normalize(directory)));
+      caches.foundTypes().asMap().values()
+          .removeIf(reference -> paths.contains(declaringFile(reference)));
+      caches.combinedTypes().asMap().values()
+          .removeIf(reference -> paths.contains(declaringFile(reference)));
+    }
+  }
+
+  /**
+   * 宣言された型の増減を各パーサーのTypeSolverのキャッシュへ反映する
+   *
+   * 対象の型（とそのネストした型）の解決結果と，追加された型で解決できるようになりうる
+   * 解決失敗の記録を取り除く．
+   */
+  void invalidateTypes(Collection<String> qualifiedNames) {
+    for (PooledParser parser : live) {
+      SourceCaches caches = parser.caches();
+      caches.foundTypes().asMap().entrySet().removeIf(
+          entry -> !entry.getValue().isSolved() || isTypeOrMember(entry.getKey(), qualifiedNames));
+      caches.combinedTypes().asMap().entrySet().removeIf(
+          entry -> !entry.getValue().isSolved() || isTypeOrMember(entry.getKey(), qualifiedNames));
+    }
+  }
+
+  /**
+   * プールを閉じてパーサーを解放する
+   */
+  synchronized void close() {
+    closed = true;
+    invalidate();
+  }
+
+  private synchronized PooledParser createIfBelowCapacity() {
+    if (closed) {
+      throw new IllegalStateException("Parser pool is closed");
+    }
+    if (created >= capacity) {
+      return null;
+    }
+    created++;
+    SourceCaches caches = SourceCaches.create(typeSolverCacheSize);
+    PooledParser parser = new PooledParser(generation, createParser(caches), caches);
+    live.add(parser);
+    return parser;
+  }
+
+  private synchronized boolean isCurrent(PooledParser parser) {
+    return !closed && parser.generation() == generation;
+  }
+
+  private synchronized void discard(PooledParser parser) {
+    created--;
+    live.remove(parser);
+    releaseCaches(parser);
+  }
+
+  // JavaParserFacadeはTypeSolverごとのインスタンスをstaticなWeakHashMapに保持し，値から
+  // TypeSolverを強参照するため，破棄したパーサーのTypeSolverは到達可能なまま残る．
+  // 1つだけを取り除く手段はなく，clearInstancesはプロセス内の他のパーサー・エンジンの
+  // インスタンスまで消すため使わない．代わりにキャッシュを空にして，解析済みソースを解放する
+  private static void releaseCaches(PooledParser parser) {
+    SourceCaches caches = parser.caches();
+    caches.parsedFiles().invalidateAll();
+    caches.parsedDirectories().invalidateAll();
+    caches.foundTypes().invalidateAll();
+    caches.combinedTypes().invalidateAll();
+  }
+
+  private List<PooledParser> drainIdle() {
+    List<PooledParser> drained = new ArrayList<>();
+    idle.drainTo(drained);
+    return drained;
+  }
+
+  private static Path normalize(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+
+  // 型宣言のあるファイル（ソース上の型でない・解決失敗の場合はnull）
+  private static Path declaringFile(
+      SymbolReference<ResolvedReferenceTypeDeclaration> reference) {
+    return reference.getDeclaration()
+        .flatMap(ResolvedReferenceTypeDeclaration::toAst)
+        .flatMap(node -> node.findCompilationUnit())
+        .flatMap(CompilationUnit::getStorage)
+        .map(storage -> normalize(storage.getPath()))
+        .orElse(null);
+  }
+
+  private static boolean isTypeOrMember(String name, Collection<String> qualifiedNames) {
+    for (String qualifiedName : qualifiedNames) {
+      if (name.equals(qualifiedName) || name.startsWith(qualifiedName + ".")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * JavaParserを構築（設定とSymbolSolverはパーサーごとに一度だけ生成）
+   */
+  private JavaParser createParser(SourceCaches caches) {
+    // CombinedTypeSolverも型の解決結果を独自にキャッシュするため，同様に自前のものを渡す
+    CombinedTypeSolver typeSolver =
+        new CombinedTypeSolver(
+            CombinedTypeSolver.ExceptionHandlers.IGNORE_NONE,
+            List.of(
+                new ReflectionTypeSolver(),
+                new JavaParserTypeSolver(
+                    sourceRoot,
+                    new JavaParser(new ParserConfiguration()),
+                    GuavaCache.create(caches.parsedFiles()),
+                    GuavaCache.create(caches.parsedDirectories()),
+                    GuavaCache.create(caches.foundTypes()))),
+            GuavaCache.create(caches.combinedTypes()));
+
+    ParserConfiguration parserConfiguration = new ParserConfiguration();
+    parserConfiguration.setSymbolResolver(new JavaSymbolSolver(typeSolver));
+    // TODO: 言語レベルの対応
+    parserConfiguration.setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_21);
+    return new JavaParser(parserConfiguration);
+  }
+
+  /**
+   * 貸し出し中のパーサーと，それを作った時点の世代，そのJavaParserTypeSolverのキャッシュ
+   */
+  record PooledParser(int generation, JavaParser parser, SourceCaches caches) {}
+
+  /**
+   * TypeSolverのキャッシュ（それぞれ上限までのLRU）
+   *
+   * @param parsedFiles ファイル -> 解析結果
+   * @param parsedDirectories ディレクトリ -> 含まれるファイルの解析結果
+   * @param foundTypes 完全修飾名 -> 型の解決結果（解決失敗を含む）
+   * @param combinedTypes CombinedTypeSolverの完全修飾名 -> 型の解決結果（解決失敗を含む）
+   */
+  record SourceCaches(
+      Cache<Path, Optional<CompilationUnit>> parsedFiles,
+      Cache<Path, List<CompilationUnit>> parsedDirectories,
+      Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes,
+      Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> combinedTypes) {
+
+    static SourceCaches create(long maximumSize) {
+      return new SourceCaches(
+          CacheBuilder.newBuilder().maximumSize(maximumSize).build(),
+          CacheBuilder.newBuilder().maximumSize(maximumSize).build(),
+          CacheBuilder.newBuilder().maximumSize(maximumSize).build(),
+          CacheBuilder.newBuilder().maximumSize(maximumSize).build());
+    }
+  }
+}
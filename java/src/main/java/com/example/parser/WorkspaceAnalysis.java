@@ -0,0 +1,14 @@
+package com.example.parser;
+
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.WorkspaceGraph;
+
+/**
+ * ワークスペース解析の結果（ファイル単位のグラフをマージしたワークスペースグラフと成功/失敗ファイル数）
+ */
+public record WorkspaceAnalysis(WorkspaceGraph workspaceGraph, int analyzedFiles, int failedFiles) {
+  /** マージ済みのグラフ（ワークスペースグラフの更新に合わせて変化する） */
+  public CodeGraph graph() {
+    return workspaceGraph.getGraph();
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.parser.graph;
+
+import java.util.List;
+
+import com.example.parser.models.EdgeType;
+
+/**
+ * パッケージ・モジュール単位に集約したグラフ
+ *
+ * ノードは集約ノード（Package・Module）と，展開されたパッケージのクラスの混在．
+ * エッジは（始点, 終点, 種類）ごとに1本で，元のエッジの本数を重みとして持つ．
+ * エッジは始点の順に並び，ノードvの出力エッジは edgeOffsets[v] から edgeOffsets[v + 1]．
+ *
+ * @param ids ノードID（パッケージ名，"module:" + モジュール名，またはクラスの完全修飾名）
+ * @param types ノードの種類（Package・Moduleまたはクラスの種類）
+ * @param linesOfCode メンバーの行数の合計（行数が分かるメンバーがない場合は-1）
+ * @param memberCounts メンバーのクラス数（クラスノードは1）
+ * @param filePaths ファイルパス（集約ノードはnull）
+ * @param edgeOffsets ノードごとの出力エッジの開始位置（長さはノード数 + 1）
+ * @param edgeTargets エッジの終点
+ * @param edgeTypes エッジの種類
+ * @param edgeWeights 集約した元のエッジの本数
+ */
+public record AggregatedGraph(
+    List<String> ids,
+    List<String> types,
+    int[] linesOfCode,
+    int[] memberCounts,
+    List<String> filePaths,
+    int[] edgeOffsets,
+    int[] edgeTargets,
+    EdgeType[] edgeTypes,
+    int[] edgeWeights) {
+
+  public int nodeCount() {
+    return ids.size();
+  }
+
+  public int edgeCount() {
+    return edgeTargets.length;
+  }
+}
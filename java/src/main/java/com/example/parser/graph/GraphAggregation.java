@@ -0,0 +1,235 @@
+package com.example.parser.graph;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.parser.models.CompactCodeGraph;
+import com.example.parser.models.EdgeType;
+import com.example.parser.models.SymbolTable;
+
+/**
+ * クラス単位のグラフをパッケージ・モジュール単位の集約ノードへまとめる
+ *
+ * 大きなグラフを最初は少数の集約ノードで表示し，関心のあるモジュール・パッケージだけを
+ * 展開（expanded）して段階的に詳細へ降りるために使う．
+ * 同じ集約ノード内のエッジは取り除き，集約ノード間のエッジは種類ごとに本数を数える．
+ */
+public final class GraphAggregation {
+  /**
+   * 集約の粒度
+   */
+  public enum Level {
+    // モジュール（ビルド単位のディレクトリ）ごと
+    MODULE,
+    // パッケージごと
+    PACKAGE
+  }
+
+  public static final String MODULE_TYPE = "Module";
+  public static final String PACKAGE_TYPE = "Package";
+
+  // モジュールIDの接頭辞（パッケージ名との衝突を避ける）
+  public static final String MODULE_PREFIX = "module:";
+
+  // ファイルパスが不明なノード（ライブラリのクラスなど）のモジュール
+  public static final String EXTERNAL_MODULE = MODULE_PREFIX + "(external)";
+
+  // デフォルトパッケージの集約ノード
+  public static final String DEFAULT_PACKAGE = "(default)";
+
+  private GraphAggregation() {}
+
+  /**
+   * 集約したグラフを作る（集約ノードのIDは元のグラフのシンボル表で共有する）
+   *
+   * @param workspaceRoot モジュールを求める基準のディレクトリ
+   * @param level 集約の粒度
+   * @param expanded 展開する集約ノードのID（モジュールはパッケージへ，パッケージはクラスへ）
+   * @param edgeTypes 数えるエッジの種類（空の場合は全種類）
+   */
+  public static AggregatedGraph aggregate(
+      CompactCodeGraph graph,
+      Path workspaceRoot,
+      Level level,
+      Set<String> expanded,
+      Set<EdgeType> edgeTypes) {
+    Set<EdgeType> types =
+        edgeTypes == null || edgeTypes.isEmpty() ? EnumSet.allOf(EdgeType.class) : edgeTypes;
+    int nodeCount = graph.nodeCount();
+
+    // ノードごとの集約先のID（同じディレクトリのファイルはモジュールの計算を共有）
+    String[] groupIds = new String[nodeCount];
+    Map<String, String> modules = new HashMap<>();
+    Map<String, Integer> groups = new HashMap<>();
+    for (int v = 0; v < nodeCount; v++) {
+      groupIds[v] = groupOf(graph, v, workspaceRoot, level, expanded, modules);
+      groups.putIfAbsent(groupIds[v], 0);
+    }
+    // ID順に番号を振る
+    List<String> ids = new ArrayList<>(groups.keySet());
+    ids.sort(null);
+    int groupCount = ids.size();
+    for (int g = 0; g < groupCount; g++) {
+      groups.put(ids.get(g), g);
+    }
+
+    int[] groupOf = new int[nodeCount];
+    String[] groupTypes = new String[groupCount];
+    String[] filePaths = new String[groupCount];
+    int[] linesOfCode = new int[groupCount];
+    int[] memberCounts = new int[groupCount];
+    Arrays.fill(linesOfCode, -1);
+    for (int v = 0; v < nodeCount; v++) {
+      int g = groups.get(groupIds[v]);
+      groupOf[v] = g;
+      memberCounts[g]++;
+      if (graph.getLinesOfCode(v) >= 0) {
+        linesOfCode[g] = Math.max(linesOfCode[g], 0) + graph.getLinesOfCode(v);
+      }
+      if (groupIds[v].equals(graph.getId(v))) {
+        groupTypes[g] = graph.getNodeType(v);
+        filePaths[g] = graph.getFilePath(v);
+      } else {
+        groupTypes[g] = groupIds[v].startsWith(MODULE_PREFIX) ? MODULE_TYPE : PACKAGE_TYPE;
+      }
+    }
+
+    // (始点, 終点) -> 種類ごとの本数
+    int typeCount = EdgeType.values().length;
+    Map<Long, int[]> weights = new HashMap<>();
+    for (int v = 0; v < nodeCount; v++) {
+      int source = groupOf[v];
+      for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+        int target = groupOf[graph.outTarget(e)];
+        EdgeType type = graph.outType(e);
+        if (source != target && types.contains(type)) {
+          long key = (long) source * groupCount + target;
+          weights.computeIfAbsent(key, k -> new int[typeCount])[type.ordinal()]++;
+        }
+      }
+    }
+
+    long[] keys = weights.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+    int[] edgeOffsets = new int[groupCount + 1];
+    List<Integer> targets = new ArrayList<>();
+    List<EdgeType> edgeTypeList = new ArrayList<>();
+    List<Integer> edgeWeights = new ArrayList<>();
+    for (long key : keys) {
+      int source = (int) (key / groupCount);
+      int target = (int) (key % groupCount);
+      int[] counts = weights.get(key);
+      for (EdgeType type : EdgeType.values()) {
+        if (counts[type.ordinal()] > 0) {
+          targets.add(target);
+          edgeTypeList.add(type);
+          edgeWeights.add(counts[type.ordinal()]);
+          edgeOffsets[source + 1]++;
+        }
+      }
+    }
+    for (int g = 0; g < groupCount; g++) {
+      edgeOffsets[g + 1] += edgeOffsets[g];
+    }
+
+    return new AggregatedGraph(
+        ids,
+        Arrays.asList(groupTypes),
+        linesOfCode,
+        memberCounts,
+        Arrays.asList(filePaths),
+        edgeOffsets,
+        targets.stream().mapToInt(Integer::intValue).toArray(),
+        edgeTypeList.toArray(new EdgeType[0]),
+        edgeWeights.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  // 展開されていない最も粗い集約先
+  private static String groupOf(
+      CompactCodeGraph graph,
+      int node,
+      Path workspaceRoot,
+      Level level,
+      Set<String> expanded,
+      Map<String, String> modules) {
+    if (level == Level.MODULE) {
+      String filePath = graph.getFilePath(node);
+      String module =
+          filePath == null
+              ? EXTERNAL_MODULE
+              : modules.computeIfAbsent(
+                  directoryOf(filePath), directory -> moduleOf(graph.getSymbols(), workspaceRoot, filePath));
+      if (!expanded.contains(module)) {
+        return module;
+      }
+    }
+    String packageName = packageOf(graph.getSymbols(), graph.getId(node));
+    if (!expanded.contains(packageName)) {
+      return packageName;
+    }
+    return graph.getId(node);
+  }
+
+  private static String directoryOf(String filePath) {
+    int separator = Math.max(filePath.lastIndexOf('/'), filePath.lastIndexOf('\\'));
+    return separator < 0 ? "" : filePath.substring(0, separator);
+  }
+
+  /**
+   * クラスの完全修飾名からパッケージの集約ノードIDを求める
+   *
+   * ネストしたクラス（com.example.Outer.Inner）も外側のクラスのパッケージに含める．
+   * 大文字で始まる最初の要素をクラス名とみなす．
+   *
+   * @param symbols IDを共有するシンボル表
+   */
+  public static String packageOf(SymbolTable symbols, String qualifiedName) {
+    int start = 0;
+    while (start < qualifiedName.length()) {
+      if (Character.isUpperCase(qualifiedName.charAt(start))) {
+        return start == 0 ? DEFAULT_PACKAGE : symbols.intern(qualifiedName.substring(0, start - 1));
+      }
+      int dot = qualifiedName.indexOf('.', start);
+      if (dot < 0) {
+        break;
+      }
+      start = dot + 1;
+    }
+    String packageName = symbols.packageOf(qualifiedName);
+    return packageName.isEmpty() ? DEFAULT_PACKAGE : packageName;
+  }
+
+  /**
+   * ファイルパスからモジュールの集約ノードIDを求める
+   *
+   * ワークスペースからの相対パスで最初の"src"ディレクトリより前をモジュールとする
+   * （Maven・Gradleのマルチモジュール構成）．"src"がない場合は最上位のディレクトリ，
+   * ワークスペース直下の"src"の場合はワークスペース自体（"."）．
+   *
+   * @param symbols IDを共有するシンボル表
+   */
+  public static String moduleOf(SymbolTable symbols, Path workspaceRoot, String filePath) {
+    if (filePath == null) {
+      return EXTERNAL_MODULE;
+    }
+    Path path = Paths.get(filePath);
+    if (!path.startsWith(workspaceRoot)) {
+      return EXTERNAL_MODULE;
+    }
+    Path relative = workspaceRoot.relativize(path);
+    int count = relative.getNameCount();
+    for (int i = 0; i < count - 1; i++) {
+      if (relative.getName(i).toString().equals("src")) {
+        return symbols.intern(
+            MODULE_PREFIX + (i == 0 ? "." : relative.subpath(0, i).toString().replace('\\', '/')));
+      }
+    }
+    return symbols.intern(MODULE_PREFIX + (count > 1 ? relative.getName(0).toString() : "."));
+  }
+}
@@ -0,0 +1,224 @@
+package com.example.parser.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.CompactCodeGraph;
+import com.example.parser.models.EdgeType;
+
+/**
+ * CompactCodeGraphに対する部分グラフの問い合わせ（近傍・スライス・最短経路）
+ *
+ * いずれもノード番号の配列とBitSetだけで幅優先探索を行い，
+ * 探索中にノード・エッジごとのオブジェクトを作らない．
+ * エッジの種類の指定が空の場合は全種類をたどる．
+ */
+public final class GraphQueries {
+  /**
+   * 探索でたどるエッジの向き
+   */
+  public enum Direction {
+    // 依存先へ（出力エッジ）
+    FORWARD,
+    // 依存元へ（入力エッジ）
+    BACKWARD,
+    // 両方
+    BOTH
+  }
+
+  private GraphQueries() {}
+
+  /**
+   * ファイルで宣言されたノード（ファイルパスが一致するノード）
+   */
+  public static int[] nodesInFile(CompactCodeGraph graph, String filePath) {
+    int[] nodes = new int[graph.nodeCount()];
+    int size = 0;
+    for (int v = 0; v < graph.nodeCount(); v++) {
+      if (filePath.equals(graph.getFilePath(v))) {
+        nodes[size++] = v;
+      }
+    }
+    return Arrays.copyOf(nodes, size);
+  }
+
+  /**
+   * 起点からmaxDepthホップ以内で到達できるノード（起点を含む）
+   *
+   * @param seeds 起点のノード番号
+   * @param maxDepth 最大ホップ数（負の場合は無制限．FORWARD・BACKWARDでスライスになる）
+   */
+  public static BitSet neighborhood(
+      CompactCodeGraph graph,
+      int[] seeds,
+      int maxDepth,
+      Direction direction,
+      Set<EdgeType> edgeTypes) {
+    boolean[] allowed = allowedTypes(edgeTypes);
+    BitSet visited = new BitSet(graph.nodeCount());
+    int[] frontier = new int[graph.nodeCount()];
+    int size = 0;
+    for (int seed : seeds) {
+      if (!visited.get(seed)) {
+        visited.set(seed);
+        frontier[size++] = seed;
+      }
+    }
+
+    int[] next = new int[graph.nodeCount()];
+    for (int depth = 0; size > 0 && (maxDepth < 0 || depth < maxDepth); depth++) {
+      int nextSize = 0;
+      for (int i = 0; i < size; i++) {
+        int node = frontier[i];
+        if (direction != Direction.BACKWARD) {
+          for (int e = graph.outStart(node); e < graph.outEnd(node); e++) {
+            int target = graph.outTarget(e);
+            if (allowed[graph.outType(e).ordinal()] && !visited.get(target)) {
+              visited.set(target);
+              next[nextSize++] = target;
+            }
+          }
+        }
+        if (direction != Direction.FORWARD) {
+          for (int e = graph.inStart(node); e < graph.inEnd(node); e++) {
+            int source = graph.inSource(e);
+            if (allowed[graph.inType(e).ordinal()] && !visited.get(source)) {
+              visited.set(source);
+              next[nextSize++] = source;
+            }
+          }
+        }
+      }
+      int[] swap = frontier;
+      frontier = next;
+      next = swap;
+      size = nextSize;
+    }
+    return visited;
+  }
+
+  /**
+   * fromからtoへの最短経路（ホップ数が最小のもの）
+   *
+   * @return 経路上のノード番号（from, ..., to．到達できない場合は空）
+   */
+  public static int[] shortestPath(
+      CompactCodeGraph graph, int from, int to, Direction direction, Set<EdgeType> edgeTypes) {
+    boolean[] allowed = allowedTypes(edgeTypes);
+    int[] parent = new int[graph.nodeCount()];
+    Arrays.fill(parent, -1);
+    parent[from] = from;
+    int[] queue = new int[graph.nodeCount()];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = from;
+
+    while (head < tail && parent[to] < 0) {
+      int node = queue[head++];
+      if (direction != Direction.BACKWARD) {
+        for (int e = graph.outStart(node); e < graph.outEnd(node); e++) {
+          int target = graph.outTarget(e);
+          if (allowed[graph.outType(e).ordinal()] && parent[target] < 0) {
+            parent[target] = node;
+            queue[tail++] = target;
+          }
+        }
+      }
+      if (direction != Direction.FORWARD) {
+        for (int e = graph.inStart(node); e < graph.inEnd(node); e++) {
+          int source = graph.inSource(e);
+          if (allowed[graph.inType(e).ordinal()] && parent[source] < 0) {
+            parent[source] = node;
+            queue[tail++] = source;
+          }
+        }
+      }
+    }
+    if (parent[to] < 0) {
+      return new int[0];
+    }
+
+    int length = 1;
+    for (int node = to; node != from; node = parent[node]) {
+      length++;
+    }
+    int[] path = new int[length];
+    for (int node = to, i = length - 1; i >= 0; node = parent[node], i--) {
+      path[i] = node;
+    }
+    return path;
+  }
+
+  /**
+   * 指定したノードとその間の（指定した種類の）エッジからなる部分グラフ
+   *
+   * ノードはノード番号順に並ぶ．
+   */
+  public static CodeGraph subgraph(CompactCodeGraph graph, BitSet nodes, Set<EdgeType> edgeTypes) {
+    boolean[] allowed = allowedTypes(edgeTypes);
+    CodeGraph result = new CodeGraph(graph.getSymbols());
+    for (int v = nodes.nextSetBit(0); v >= 0; v = nodes.nextSetBit(v + 1)) {
+      copyNode(graph, v, result);
+    }
+    for (int v = nodes.nextSetBit(0); v >= 0; v = nodes.nextSetBit(v + 1)) {
+      for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+        int target = graph.outTarget(e);
+        if (allowed[graph.outType(e).ordinal()] && nodes.get(target)) {
+          result.addReferNode(graph.getId(v), graph.getId(target), graph.outType(e).getLabel());
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 経路上のノードと，隣り合うノード間の（指定した向き・種類の）エッジからなるグラフ
+   *
+   * ノードは経路の順に並ぶ．
+   */
+  public static CodeGraph pathGraph(
+      CompactCodeGraph graph, int[] path, Direction direction, Set<EdgeType> edgeTypes) {
+    boolean[] allowed = allowedTypes(edgeTypes);
+    CodeGraph result = new CodeGraph(graph.getSymbols());
+    for (int v : path) {
+      copyNode(graph, v, result);
+    }
+    for (int i = 0; i + 1 < path.length; i++) {
+      if (direction != Direction.BACKWARD) {
+        addEdgesBetween(graph, path[i], path[i + 1], allowed, result);
+      }
+      if (direction != Direction.FORWARD) {
+        addEdgesBetween(graph, path[i + 1], path[i], allowed, result);
+      }
+    }
+    return result;
+  }
+
+  private static void addEdgesBetween(
+      CompactCodeGraph graph, int source, int target, boolean[] allowed, CodeGraph result) {
+    for (int e = graph.outStart(source); e < graph.outEnd(source); e++) {
+      if (graph.outTarget(e) == target && allowed[graph.outType(e).ordinal()]) {
+        result.addReferNode(graph.getId(source), graph.getId(target), graph.outType(e).getLabel());
+      }
+    }
+  }
+
+  private static void copyNode(CompactCodeGraph graph, int node, CodeGraph result) {
+    String id = graph.getId(node);
+    result.setNodeType(id, graph.getNodeType(node));
+    result.setNodeLinesOfCode(id, graph.getLinesOfCode(node));
+    result.setNodeFilePath(id, graph.getFilePath(node));
+  }
+
+  // EdgeTypeの順序で引ける許可表（空の指定は全種類）
+  private static boolean[] allowedTypes(Set<EdgeType> edgeTypes) {
+    Set<EdgeType> types =
+        edgeTypes == null || edgeTypes.isEmpty() ? EnumSet.allOf(EdgeType.class) : edgeTypes;
+    boolean[] allowed = new boolean[EdgeType.values().length];
+    types.forEach(type -> allowed[type.ordinal()] = true);
+    return allowed;
+  }
+}
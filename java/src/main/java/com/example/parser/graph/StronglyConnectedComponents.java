@@ -0,0 +1,217 @@
+package com.example.parser.graph;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.example.parser.models.CompactCodeGraph;
+import com.example.parser.models.EdgeType;
+
+/**
+ * 強連結成分分解（Tarjanの方法を再帰なしで実装）
+ *
+ * 呼び出しスタックを配列で持つため，深い依存の連鎖でもスタックオーバーフローしない．
+ * 成分番号はトポロジカル順（縮約DAGの辺は常に番号の小さい成分から大きい成分へ向かう）．
+ * 2ノード以上の成分，または自己ループを持つ成分が循環依存になる．
+ */
+public final class StronglyConnectedComponents {
+  private final int[] componentOf;
+  private final int componentCount;
+
+  // 成分ごとのメンバー（CSR形式．成分cのメンバーは memberOffsets[c] から memberOffsets[c + 1]）
+  private final int[] memberOffsets;
+  private final int[] members;
+
+  private final boolean[] cyclic;
+
+  // 縮約DAGの辺（CSR形式．重複なし）
+  private final int[] dagOffsets;
+  private final int[] dagTargets;
+
+  private StronglyConnectedComponents(int nodeCount, int[] offsets, int[] targets) {
+    this.componentOf = new int[nodeCount];
+    this.componentCount = tarjan(nodeCount, offsets, targets, componentOf);
+
+    this.memberOffsets = new int[componentCount + 1];
+    for (int component : componentOf) {
+      memberOffsets[component + 1]++;
+    }
+    for (int c = 0; c < componentCount; c++) {
+      memberOffsets[c + 1] += memberOffsets[c];
+    }
+    this.members = new int[nodeCount];
+    int[] next = Arrays.copyOf(memberOffsets, componentCount);
+    for (int v = 0; v < nodeCount; v++) {
+      members[next[componentOf[v]]++] = v;
+    }
+
+    this.cyclic = new boolean[componentCount];
+    int[] lastSeen = new int[componentCount];
+    Arrays.fill(lastSeen, -1);
+    int[] counts = new int[componentCount + 1];
+    int[] buffer = new int[targets.length];
+    int size = 0;
+    for (int c = 0; c < componentCount; c++) {
+      cyclic[c] = memberOffsets[c + 1] - memberOffsets[c] > 1;
+      for (int i = memberOffsets[c]; i < memberOffsets[c + 1]; i++) {
+        int v = members[i];
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int target = componentOf[targets[e]];
+          if (target == c) {
+            cyclic[c] |= targets[e] == v;
+          } else if (lastSeen[target] != c) {
+            lastSeen[target] = c;
+            buffer[size++] = target;
+            counts[c + 1]++;
+          }
+        }
+      }
+    }
+    for (int c = 0; c < componentCount; c++) {
+      counts[c + 1] += counts[c];
+    }
+    this.dagOffsets = counts;
+    this.dagTargets = Arrays.copyOf(buffer, size);
+  }
+
+  /**
+   * CompactCodeGraphの指定した種類のエッジ（空の場合は全種類）について分解
+   */
+  public static StronglyConnectedComponents of(CompactCodeGraph graph, Set<EdgeType> edgeTypes) {
+    Set<EdgeType> types =
+        edgeTypes == null || edgeTypes.isEmpty() ? EnumSet.allOf(EdgeType.class) : edgeTypes;
+    int nodeCount = graph.nodeCount();
+    int[] offsets = new int[nodeCount + 1];
+    int[] targets = new int[graph.edgeCount()];
+    int size = 0;
+    for (int v = 0; v < nodeCount; v++) {
+      for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+        if (types.contains(graph.outType(e))) {
+          targets[size++] = graph.outTarget(e);
+        }
+      }
+      offsets[v + 1] = size;
+    }
+    return new StronglyConnectedComponents(nodeCount, offsets, Arrays.copyOf(targets, size));
+  }
+
+  /**
+   * CSR形式の隣接リストについて分解
+   *
+   * @param offsets ノードvの出力先は targets[offsets[v]] から targets[offsets[v + 1] - 1]
+   */
+  public static StronglyConnectedComponents of(int nodeCount, int[] offsets, int[] targets) {
+    return new StronglyConnectedComponents(nodeCount, offsets, targets);
+  }
+
+  // 成分番号を書き込み，成分数を返す
+  private static int tarjan(int nodeCount, int[] offsets, int[] targets, int[] componentOf) {
+    int[] index = new int[nodeCount];
+    int[] low = new int[nodeCount];
+    Arrays.fill(index, -1);
+    boolean[] onStack = new boolean[nodeCount];
+    int[] stack = new int[nodeCount];
+    int stackSize = 0;
+    // 呼び出しスタック（ノードと，次に調べるエッジの位置）
+    int[] callNode = new int[nodeCount];
+    int[] callEdge = new int[nodeCount];
+    int depth = 0;
+    int nextIndex = 0;
+    // 完了した順（逆トポロジカル順）の番号
+    int completed = 0;
+
+    for (int root = 0; root < nodeCount; root++) {
+      if (index[root] >= 0) {
+        continue;
+      }
+      index[root] = low[root] = nextIndex++;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      callNode[0] = root;
+      callEdge[0] = offsets[root];
+      depth = 1;
+
+      while (depth > 0) {
+        int v = callNode[depth - 1];
+        int e = callEdge[depth - 1];
+        if (e < offsets[v + 1]) {
+          callEdge[depth - 1] = e + 1;
+          int w = targets[e];
+          if (index[w] < 0) {
+            index[w] = low[w] = nextIndex++;
+            stack[stackSize++] = w;
+            onStack[w] = true;
+            callNode[depth] = w;
+            callEdge[depth] = offsets[w];
+            depth++;
+          } else if (onStack[w]) {
+            low[v] = Math.min(low[v], index[w]);
+          }
+          continue;
+        }
+
+        // vの探索が完了
+        depth--;
+        if (depth > 0) {
+          int parent = callNode[depth - 1];
+          low[parent] = Math.min(low[parent], low[v]);
+        }
+        if (low[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--stackSize];
+            onStack[w] = false;
+            componentOf[w] = completed;
+          } while (w != v);
+          completed++;
+        }
+      }
+    }
+
+    // トポロジカル順へ振り直す
+    for (int v = 0; v < nodeCount; v++) {
+      componentOf[v] = completed - 1 - componentOf[v];
+    }
+    return completed;
+  }
+
+  public int componentCount() {
+    return componentCount;
+  }
+
+  public int componentOf(int node) {
+    return componentOf[node];
+  }
+
+  /** 成分のメンバー（ノード番号の昇順） */
+  public int[] members(int component) {
+    return Arrays.copyOfRange(members, memberOffsets[component], memberOffsets[component + 1]);
+  }
+
+  public int componentSize(int component) {
+    return memberOffsets[component + 1] - memberOffsets[component];
+  }
+
+  /** 循環依存を含む成分か（2ノード以上，または自己ループあり） */
+  public boolean isCyclic(int component) {
+    return cyclic[component];
+  }
+
+  /** 縮約DAGで成分から出る辺の開始位置 */
+  public int dagStart(int component) {
+    return dagOffsets[component];
+  }
+
+  /** 縮約DAGで成分から出る辺の終了位置（この位置を含まない） */
+  public int dagEnd(int component) {
+    return dagOffsets[component + 1];
+  }
+
+  public int dagTarget(int edge) {
+    return dagTargets[edge];
+  }
+
+  public int dagEdgeCount() {
+    return dagTargets.length;
+  }
+}
@@ -0,0 +1,410 @@
+package com.example.parser.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.example.parser.models.CodeGraph;
+import com.example.parser.models.GraphEdge;
+import com.example.parser.models.GraphNode;
+import com.example.parser.models.SymbolTable;
+
+/**
+ * ファイル単位のCodeGraphを永続化するインデックス
+ *
+ * エントリはファイルパスと内容ハッシュで照合し，解析器のバージョンが一致しない
+ * インデックスファイルは読み込まない．再起動後は変更のないファイルの再解析を省略できる．
+ *
+ * 読み込み時はエントリのファイル内の位置だけを覚え，グラフは照合に成功した時点で
+ * ファイルから読む．メモリに保持するのは保存前に追加・更新されたエントリのグラフだけで，
+ * 保存後は解放する（ワークスペースの規模に比例してヒープを使わない）．
+ */
+public class AnalysisIndex {
+  private static final Logger logger = Logger.getLogger(AnalysisIndex.class.getName());
+
+  private static final int MAGIC = 0x44564958; // "DVIX"
+  // 2: グラフの前にバイト数を書き，読み込み時に読み飛ばせるようにした
+  private static final int FORMAT_VERSION = 2;
+  private static final String INDEX_FILE_NAME = "graph-index.bin";
+
+  private final Path indexFile;
+  private final String analyzerVersion;
+  private final SymbolTable symbols;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private volatile boolean dirty;
+
+  // 保存済みのグラフを読むインデックスファイル（未保存・読み込み失敗の場合はnull）．
+  // エントリの照合・更新は読み取りロック，ファイルの読み込み・置き換えは書き込みロックの下で行う
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private FileChannel storage;
+
+  /**
+   * @param symbols 読み込んだファイルパス・グラフの名前を共有するシンボル表
+   */
+  public AnalysisIndex(Path indexDirectory, String analyzerVersion, SymbolTable symbols) {
+    this.indexFile = indexDirectory.resolve(INDEX_FILE_NAME);
+    this.analyzerVersion = analyzerVersion;
+    this.symbols = symbols;
+  }
+
+  /** 内容のハッシュ値（SHA-256の16進表現） */
+  public static String hash(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  /** 内容ハッシュが一致する場合のみグラフを返す（保存済みのものはファイルから読む） */
+  public CodeGraph lookup(String filePath, String contentHash) {
+    lock.readLock().lock();
+    try {
+      Entry entry = entries.get(filePath);
+      if (entry == null || !entry.contentHash().equals(contentHash)) {
+        return null;
+      }
+      if (entry.graph() != null) {
+        return entry.graph();
+      }
+      return readGraph(readStored(entry));
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Failed to read index entry: " + filePath);
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void put(String filePath, String contentHash, CodeGraph graph) {
+    lock.readLock().lock();
+    try {
+      entries.put(filePath, Entry.pending(contentHash, graph));
+      dirty = true;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void remove(String filePath) {
+    lock.readLock().lock();
+    try {
+      if (entries.remove(filePath) != null) {
+        dirty = true;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** 指定されたファイル以外のエントリを削除 */
+  public void retainAll(Collection<String> filePaths) {
+    Set<String> keep = new HashSet<>(filePaths);
+    lock.readLock().lock();
+    try {
+      if (entries.keySet().removeIf(path -> !keep.contains(path))) {
+        dirty = true;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /** インデックスファイルのエントリの一覧を読み込む（存在しない・互換性がない場合は空のまま） */
+  public synchronized void load() {
+    lock.writeLock().lock();
+    try (CountingInputStream counter =
+            new CountingInputStream(new BufferedInputStream(Files.newInputStream(indexFile)));
+        DataInputStream in = new DataInputStream(counter)) {
+      closeStorage();
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        logger.log(Level.INFO, "Ignoring index with unknown format: {0}", indexFile);
+        return;
+      }
+      String storedVersion = in.readUTF();
+      if (!storedVersion.equals(analyzerVersion)) {
+        logger.log(
+            Level.INFO,
+            "Ignoring index built by analyzer {0} (current {1})",
+            new Object[] {storedVersion, analyzerVersion});
+        return;
+      }
+      int count = in.readInt();
+      Map<String, Entry> loaded = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        String filePath = symbols.intern(in.readUTF());
+        String contentHash = in.readUTF();
+        int length = in.readInt();
+        loaded.put(filePath, Entry.stored(contentHash, counter.position(), length));
+        in.skipNBytes(length);
+      }
+      storage = FileChannel.open(indexFile, StandardOpenOption.READ);
+      entries.clear();
+      entries.putAll(loaded);
+      dirty = false;
+      logger.log(Level.INFO, "Loaded {0} index entries from {1}", new Object[] {count, indexFile});
+    } catch (NoSuchFileException e) {
+      logger.log(Level.INFO, "No analysis index at {0}", indexFile);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Failed to load analysis index: " + indexFile);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * 変更があればインデックスファイルへ書き出す（一時ファイル経由で置き換え）
+   *
+   * 保存済みのエントリは前のファイルからバイト列のまま写し，保存後は全エントリの
+   * グラフをメモリから解放する．
+   */
+  public synchronized void save() {
+    if (!dirty) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      Files.createDirectories(indexFile.getParent());
+      Path tempFile = indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+      List<Map.Entry<String, Entry>> snapshot = List.copyOf(entries.entrySet());
+      Map<String, Entry> saved = new HashMap<>(snapshot.size() * 2);
+      try (CountingOutputStream counter =
+              new CountingOutputStream(
+                  new BufferedOutputStream(Files.newOutputStream(tempFile)));
+          DataOutputStream out = new DataOutputStream(counter)) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(analyzerVersion);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, Entry> entry : snapshot) {
+          Entry value = entry.getValue();
+          byte[] graph = value.graph() != null ? toBytes(value.graph()) : readStored(value);
+          out.writeUTF(entry.getKey());
+          out.writeUTF(value.contentHash());
+          out.writeInt(graph.length);
+          saved.put(
+              entry.getKey(),
+              Entry.stored(value.contentHash(), counter.position(), graph.length));
+          out.write(graph);
+        }
+      }
+      // 置き換えの前に閉じる（開いたままでは置き換えられない環境がある）
+      closeStorage();
+      Files.move(
+          tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      storage = FileChannel.open(indexFile, StandardOpenOption.READ);
+      entries.putAll(saved);
+      dirty = false;
+      logger.log(
+          Level.INFO, "Saved {0} index entries to {1}", new Object[] {snapshot.size(), indexFile});
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Failed to save analysis index: " + indexFile);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** 変更があれば保存し，インデックスファイルを閉じる（以降は保存済みのエントリを照合できない） */
+  public synchronized void close() {
+    save();
+    lock.writeLock().lock();
+    try {
+      closeStorage();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, e, () -> "Failed to close analysis index: " + indexFile);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // 保存済みのエントリのグラフのバイト列（読み取り・書き込みロックの下で呼ぶ）
+  private byte[] readStored(Entry entry) throws IOException {
+    if (storage == null) {
+      throw new IOException("Index file is not open: " + indexFile);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+    long position = entry.offset();
+    while (buffer.hasRemaining()) {
+      int read = storage.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Truncated index entry in " + indexFile);
+      }
+      position += read;
+    }
+    return buffer.array();
+  }
+
+  private void closeStorage() throws IOException {
+    if (storage != null) {
+      storage.close();
+      storage = null;
+    }
+  }
+
+  private static byte[] toBytes(CodeGraph graph) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeGraph(out, graph);
+    }
+    return bytes.toByteArray();
+  }
+
+  private CodeGraph readGraph(byte[] bytes) throws IOException {
+    return readGraph(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+  private static void writeGraph(DataOutputStream out, CodeGraph graph) throws IOException {
+    List<GraphNode> nodes = graph.getGraphNodes();
+    Map<GraphNode, Integer> indexes = new HashMap<>(nodes.size() * 2);
+    out.writeInt(nodes.size());
+    for (GraphNode node : nodes) {
+      indexes.put(node, indexes.size());
+      out.writeUTF(node.getNodeName());
+      out.writeUTF(node.getType());
+      out.writeInt(node.getLinesOfCode());
+      out.writeBoolean(node.getFilePath() != null);
+      if (node.getFilePath() != null) {
+        out.writeUTF(node.getFilePath());
+      }
+    }
+    List<GraphEdge> edges = graph.getGraphEdges();
+    out.writeInt(edges.size());
+    for (GraphEdge edge : edges) {
+      out.writeInt(indexes.get(edge.getSourceNode()));
+      out.writeInt(indexes.get(edge.getTargetNode()));
+      out.writeUTF(edge.getType());
+    }
+  }
+
+  private CodeGraph readGraph(DataInputStream in) throws IOException {
+    CodeGraph graph = new CodeGraph(symbols);
+    String[] names = new String[in.readInt()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = in.readUTF();
+      graph.setNodeType(names[i], in.readUTF());
+      graph.setNodeLinesOfCode(names[i], in.readInt());
+      if (in.readBoolean()) {
+        graph.setNodeFilePath(names[i], in.readUTF());
+      }
+    }
+    int edgeCount = in.readInt();
+    for (int i = 0; i < edgeCount; i++) {
+      String source = names[in.readInt()];
+      String target = names[in.readInt()];
+      graph.addReferNode(source, target, in.readUTF());
+    }
+    return graph;
+  }
+
+  /**
+   * @param graph 保存前のグラフ（保存済みの場合はnull）
+   * @param offset 保存済みのグラフのファイル内の位置
+   * @param length 保存済みのグラフのバイト数
+   */
+  private record Entry(String contentHash, CodeGraph graph, long offset, int length) {
+    static Entry pending(String contentHash, CodeGraph graph) {
+      return new Entry(contentHash, graph, -1, 0);
+    }
+
+    static Entry stored(String contentHash, long offset, int length) {
+      return new Entry(contentHash, null, offset, length);
+    }
+  }
+
+  // 読み込んだバイト数を数える（エントリの位置を求めるため）
+  private static final class CountingInputStream extends FilterInputStream {
+    private long position;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    long position() {
+      return position;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        position++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        position += read;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      position += skipped;
+      return skipped;
+    }
+  }
+
+  // 書き込んだバイト数を数える
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private long position;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    long position() {
+      return position;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      position += len;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.parser.jfr;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.type.Type;
+
+/**
+ * JFRイベントの共通項目を求めるユーティリティ
+ *
+ * いずれもイベントを記録する場合（shouldCommitがtrue）にだけ呼ぶこと．
+ *
+ * 実行中の言語サーバーでの記録例:
+ *
+ *   jcmd <pid> JFR.start name=dependviz filename=dependviz.jfr
+ *   jcmd <pid> JFR.stop name=dependviz
+ *
+ * イベントはJMCのイベントブラウザの "DependViz" カテゴリに表示される．
+ */
+public final class AnalysisEvents {
+  static final String CATEGORY = "DependViz";
+
+  private AnalysisEvents() {}
+
+  /** ノードを含むファイルのパス（FilePathStageと同じくCompilationUnitのストレージから） */
+  public static String filePathOf(Node node) {
+    return node.findCompilationUnit()
+        .flatMap(CompilationUnit::getStorage)
+        .map(storage -> storage.getPath().toString())
+        .orElse(null);
+  }
+
+  /** 解決対象のシンボルの表示名（型は型名，メソッド呼び出しはメソッド名） */
+  public static String symbolOf(Node node) {
+    if (node instanceof Type type) {
+      return type.asString();
+    }
+    if (node instanceof MethodCallExpr call) {
+      return call.getNameAsString();
+    }
+    return node.getClass().getSimpleName();
+  }
+
+  /** ノード数（自身を含む子孫の数） */
+  public static int countNodes(Node root) {
+    int[] count = {0};
+    root.walk(node -> count[0]++);
+    return count[0];
+  }
+}
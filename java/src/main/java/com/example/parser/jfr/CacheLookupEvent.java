@@ -0,0 +1,66 @@
+package com.example.parser.jfr;
+
+import com.github.javaparser.ast.Node;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 型解決キャッシュ・永続インデックスの参照
+ */
+@Name("dependviz.CacheLookup")
+@Label("Cache Lookup")
+@Category({AnalysisEvents.CATEGORY, "Cache"})
+@Description("Lookup in the resolution cache or the persistent analysis index")
+@StackTrace(false)
+public class CacheLookupEvent extends jdk.jfr.Event {
+  public static final String RESOLUTION = "resolution";
+  public static final String INDEX = "index";
+
+  @Label("Cache")
+  @Description("resolution or index")
+  public String cache;
+
+  @Label("Outcome")
+  @Description("hit, negative-hit, miss or bypass")
+  public String outcome;
+
+  @Label("Key")
+  @Description("Type name for the resolution cache, file path for the index")
+  public String key;
+
+  @Label("File Path")
+  public String filePath;
+
+  @Label("Node Count")
+  @Description("Nodes in the cached graph (index hits only)")
+  public int nodeCount;
+
+  /** 型解決キャッシュの参照を記録（記録中でなければ何もしない） */
+  public static void resolution(String outcome, Node type) {
+    CacheLookupEvent event = new CacheLookupEvent();
+    if (event.shouldCommit()) {
+      event.cache = RESOLUTION;
+      event.outcome = outcome;
+      event.key = AnalysisEvents.symbolOf(type);
+      event.filePath = AnalysisEvents.filePathOf(type);
+      event.commit();
+    }
+  }
+
+  /** 永続インデックスの参照を記録（記録中でなければ何もしない） */
+  public static void index(String outcome, String filePath, int nodeCount) {
+    CacheLookupEvent event = new CacheLookupEvent();
+    if (event.shouldCommit()) {
+      event.cache = INDEX;
+      event.outcome = outcome;
+      event.key = filePath;
+      event.filePath = filePath;
+      event.nodeCount = nodeCount;
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.parser.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 1ファイルの構文解析（AnalysisEngine.createCompilationUnit）
+ */
+@Name("dependviz.Parse")
+@Label("Parse")
+@Category({AnalysisEvents.CATEGORY, "Analysis"})
+@Description("Parsing of one Java source file")
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event {
+  @Label("File Path")
+  public String filePath;
+
+  @Label("Size")
+  @DataAmount
+  public long size;
+
+  @Label("Node Count")
+  @Description("AST nodes in the compilation unit")
+  public int nodeCount;
+
+  @Label("Problem Count")
+  public int problemCount;
+
+  @Label("Success")
+  public boolean success;
+}
@@ -0,0 +1,48 @@
+package com.example.parser.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 1ファイルに対する1ステージの処理
+ *
+ * FUSEDモードでは全ステージが1回の走査を共有するため，イベントの期間は走査全体になる．
+ * ステージ自身の処理時間はstageTimeで見ること．
+ */
+@Name("dependviz.Stage")
+@Label("Stage")
+@Category({AnalysisEvents.CATEGORY, "Analysis"})
+@Description("One analysis stage applied to one file")
+@StackTrace(false)
+public class StageEvent extends jdk.jfr.Event {
+  @Label("Stage")
+  public String stage;
+
+  @Label("File Path")
+  public String filePath;
+
+  @Label("Node Count")
+  @Description("Nodes handed to the stage")
+  public int nodeCount;
+
+  @Label("Failed Count")
+  @Description("Nodes whose processing threw")
+  public int failedCount;
+
+  @Label("Fused")
+  @Description("Whether the stage shared a single AST walk with other stages")
+  public boolean fused;
+
+  @Label("Stage Time")
+  @Timespan(Timespan.NANOSECONDS)
+  public long stageTime;
+
+  /** JFRでこのイベントを記録中か */
+  public static boolean isRecording() {
+    return new StageEvent().isEnabled();
+  }
+}
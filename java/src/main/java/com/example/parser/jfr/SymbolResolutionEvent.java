@@ -0,0 +1,55 @@
+package com.example.parser.jfr;
+
+import com.github.javaparser.ast.Node;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ステージ内での1回のシンボル解決（型・メソッド呼び出し）
+ *
+ * キャッシュにヒットした場合は解決を行わないため記録されない（CacheLookupEventを参照）．
+ */
+@Name("dependviz.SymbolResolution")
+@Label("Symbol Resolution")
+@Category({AnalysisEvents.CATEGORY, "Resolution"})
+@Description("Symbol solver call made by an analysis stage")
+@StackTrace(false)
+public class SymbolResolutionEvent extends jdk.jfr.Event {
+  @Label("File Path")
+  public String filePath;
+
+  @Label("Kind")
+  @Description("DESCRIBE, QUALIFIED_NAME or METHOD")
+  public String kind;
+
+  @Label("Symbol")
+  public String symbol;
+
+  @Label("Result")
+  @Description("Resolved name, or null when resolution failed")
+  public String result;
+
+  @Label("Success")
+  public boolean success;
+
+  /**
+   * 解決を終えて記録する（記録中でなければ何もしない）
+   *
+   * @param result 解決結果（失敗した場合はnull）
+   */
+  public void finish(Node node, String kind, String result) {
+    end();
+    if (shouldCommit()) {
+      this.filePath = AnalysisEvents.filePathOf(node);
+      this.kind = kind;
+      this.symbol = AnalysisEvents.symbolOf(node);
+      this.result = result;
+      this.success = result != null;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.example.parser.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 2のべき乗の境界で区切った対数ヒストグラム（スレッドセーフ，ロックなし）
+ *
+ * 値vは上限が v 以上の最小の2のべき乗になるバケットへ入る（0は上限0のバケット）．
+ * 時間・バイト数のように桁が大きく変わる値を固定の64バケットで扱うためのもの．
+ */
+public class Histogram {
+  private static final int BUCKETS = 64;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    long v = Math.max(0, value);
+    counts.incrementAndGet(bucketOf(v));
+    count.increment();
+    sum.add(v);
+    max.accumulateAndGet(v, Math::max);
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  public Snapshot snapshot() {
+    long[] values = new long[BUCKETS];
+    int first = BUCKETS;
+    int last = -1;
+    for (int i = 0; i < BUCKETS; i++) {
+      values[i] = counts.get(i);
+      if (values[i] > 0) {
+        first = Math.min(first, i);
+        last = i;
+      }
+    }
+    if (last < 0) {
+      return new Snapshot(0, 0, 0, new long[0], new long[0]);
+    }
+    // 値のある範囲のバケットだけを返す
+    long[] upperBounds = new long[last - first + 1];
+    for (int i = first; i <= last; i++) {
+      upperBounds[i - first] = upperBoundOf(i);
+    }
+    return new Snapshot(
+        count.sum(), sum.sum(), max.get(), upperBounds, Arrays.copyOfRange(values, first, last + 1));
+  }
+
+  // バケットiの上限は 2^(i-1)（i=0は0，最後のバケットはLong.MAX_VALUE）
+  private static int bucketOf(long value) {
+    return value == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value - 1) + 1);
+  }
+
+  private static long upperBoundOf(int bucket) {
+    return bucket == 0 ? 0 : bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << (bucket - 1);
+  }
+
+  /**
+   * ヒストグラムの読み取り時点の値
+   *
+   * @param upperBounds 各バケットの上限（値を含むバケットの範囲のみ，昇順）
+   * @param counts 各バケットの件数
+   */
+  public record Snapshot(long count, long sum, long max, long[] upperBounds, long[] counts) {
+    /**
+     * 分位点の近似値（その分位点を含むバケットの上限．最大値を超えない）
+     *
+     * @param quantile 0から1
+     */
+    public long quantile(double quantile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(quantile * count);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(upperBounds[i], max);
+        }
+      }
+      return max;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.example.parser.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1つのステージ（または構文解析）の計測値（全スレッド・全ファイルで共有）
+ *
+ * ノード単位で処理の成否を数え，ファイル単位でウォール時間・CPU時間・割り当てバイト数を
+ * 合計とヒストグラムに記録する．計測しなかった値は記録しないため，各ヒストグラムの
+ * 件数は処理したファイル数より少ない場合がある（推定値で埋めない）．
+ */
+public class StageMetrics {
+  private final String name;
+
+  private final LongAdder files = new LongAdder();
+  private final LongAdder resolved = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  // ファイルごとの値の分布（合計はヒストグラムのsum）
+  private final Histogram wallNanos = new Histogram();
+  private final Histogram cpuNanos = new Histogram();
+  private final Histogram allocatedBytes = new Histogram();
+
+  public StageMetrics(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** ノードを例外なく処理できた */
+  public void recordResolved() {
+    resolved.increment();
+  }
+
+  /** ノードの処理（型・シンボル解決など）に失敗した */
+  public void recordFailed() {
+    failed.increment();
+  }
+
+  /** 1ファイル分の処理コスト */
+  public void recordFile(long wall, long cpu, long allocated) {
+    files.increment();
+    wallNanos.record(wall);
+    cpuNanos.record(cpu);
+    allocatedBytes.record(allocated);
+  }
+
+  /** 1ファイル分の処理コスト（CPU時間は計測していない） */
+  public void recordFile(long wall, long allocated) {
+    files.increment();
+    wallNanos.record(wall);
+    allocatedBytes.record(allocated);
+  }
+
+  /** 1ファイルを処理した（コストは計測していない） */
+  public void recordFile() {
+    files.increment();
+  }
+
+  public void reset() {
+    files.reset();
+    resolved.reset();
+    failed.reset();
+    wallNanos.reset();
+    cpuNanos.reset();
+    allocatedBytes.reset();
+  }
+
+  public Snapshot snapshot() {
+    return new Snapshot(
+        name,
+        files.sum(),
+        resolved.sum(),
+        failed.sum(),
+        wallNanos.snapshot(),
+        cpuNanos.snapshot(),
+        allocatedBytes.snapshot());
+  }
+
+  /**
+   * 読み取り時点の計測値
+   *
+   * @param files 処理したファイル数
+   * @param resolved 処理に成功したノード数
+   * @param failed 処理に失敗したノード数
+   * @param wallNanos ファイルごとのウォール時間（ナノ秒．計測したファイルのみ）
+   * @param cpuNanos ファイルごとのCPU時間（ナノ秒．計測したファイルのみで，
+   *     FUSEDモードで走査を共有するステージは常に0件）
+   * @param allocatedBytes ファイルごとの割り当てバイト数（計測したファイルのみ）
+   */
+  public record Snapshot(
+      String name,
+      long files,
+      long resolved,
+      long failed,
+      Histogram.Snapshot wallNanos,
+      Histogram.Snapshot cpuNanos,
+      Histogram.Snapshot allocatedBytes) {}
+
+  /**
+   * 区間の計測（開始時点の値を保持し，finishで差をrecordFileへ渡す）
+   */
+  public static final class Span {
+    private long wall;
+    private long cpu;
+    private long allocated;
+
+    public static Span start() {
+      Span span = new Span();
+      span.wall = System.nanoTime();
+      span.cpu = ThreadMeter.cpuNanos();
+      span.allocated = ThreadMeter.allocatedBytes();
+      return span;
+    }
+
+    public void finish(StageMetrics metrics) {
+      metrics.recordFile(
+          System.nanoTime() - wall,
+          ThreadMeter.cpuNanos() - cpu,
+          ThreadMeter.allocatedBytes() - allocated);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.parser.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 呼び出しスレッドのCPU時間と累積割り当てバイト数を読む
+ *
+ * HotSpotのcom.sun.management.ThreadMXBeanを使い，対応していないJVMでは0を返す．
+ * 区間の値は終了時と開始時の差で求める．
+ */
+public final class ThreadMeter {
+  private static final Logger logger = Logger.getLogger(ThreadMeter.class.getName());
+
+  private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+  private static final boolean CPU_TIME = THREADS != null && enableCpuTime(THREADS);
+
+  private static final boolean ALLOCATION =
+      THREADS != null && THREADS.isThreadAllocatedMemorySupported()
+          && THREADS.isThreadAllocatedMemoryEnabled();
+
+  private ThreadMeter() {}
+
+  /** 呼び出しスレッドのCPU時間（ナノ秒） */
+  public static long cpuNanos() {
+    return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+  }
+
+  /** 呼び出しスレッドがこれまでに割り当てたバイト数 */
+  public static long allocatedBytes() {
+    return ALLOCATION ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+  }
+
+  private static com.sun.management.ThreadMXBean threadBean() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+      return bean;
+    }
+    logger.info("Thread CPU time and allocation metrics are not available on this JVM");
+    return null;
+  }
+
+  private static boolean enableCpuTime(com.sun.management.ThreadMXBean bean) {
+    if (!bean.isCurrentThreadCpuTimeSupported()) {
+      return false;
+    }
+    try {
+      if (!bean.isThreadCpuTimeEnabled()) {
+        bean.setThreadCpuTimeEnabled(true);
+      }
+      return true;
+    } catch (UnsupportedOperationException | SecurityException e) {
+      logger.log(Level.INFO, "Thread CPU time metrics are disabled", e);
+      return false;
+    }
+  }
+}
@@ -1,15 +1,34 @@
 package com.example.parser.models;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class CodeGraph {
   private final List<GraphNode> graphNodes;
   private final List<GraphEdge> graphEdges;
 
-  public CodeGraph() {
+  // 名前 -> ノード，(source, target, type) -> エッジのリスト上の位置（リストと同期して保持）
+  private final Map<String, Integer> nodeIndex;
+  private final Map<EdgeKey, Integer> edgeIndex;
+
+  // ノード名・ファイルパスを共有するシンボル表
+  private final SymbolTable symbols;
+
+  public CodeGraph(SymbolTable symbols) {
+    this.symbols = symbols;
     this.graphNodes = new ArrayList<>();
     this.graphEdges = new ArrayList<>();
+    this.nodeIndex = new HashMap<>();
+    this.edgeIndex = new HashMap<>();
+  }
+
+  /**
+   * ノード名・ファイルパスを共有するシンボル表（このグラフから作るグラフも同じ表を使う）
+   */
+  public SymbolTable getSymbols() {
+    return symbols;
   }
 
   public List<GraphNode> getGraphNodes() {
@@ -20,6 +39,60 @@ public class CodeGraph {
     return graphEdges;
   }
 
+  /**
+   * 名前でノードを検索（存在しない場合はnull）
+   */
+  public GraphNode findNode(String className) {
+    return findGraphNode(className);
+  }
+
+  /**
+   * 指定した向き・種類のエッジが存在するか
+   */
+  public boolean containsEdge(String className, String referClassName, String edgeType) {
+    return edgeIndex.containsKey(new EdgeKey(className, referClassName, edgeType));
+  }
+
+  /**
+   * ノードを削除（O(1)．最後のノードが削除位置へ移動するため並び順は変わる）
+   *
+   * 接続するエッジは呼び出し側で先に削除しておくこと
+   *
+   * @return 削除したノード（存在しない場合はnull）
+   */
+  public GraphNode removeNode(String className) {
+    Integer position = nodeIndex.remove(className);
+    if (position == null) {
+      return null;
+    }
+    GraphNode removed = graphNodes.get(position);
+    GraphNode last = graphNodes.remove(graphNodes.size() - 1);
+    if (last != removed) {
+      graphNodes.set(position, last);
+      nodeIndex.put(last.getNodeName(), position);
+    }
+    return removed;
+  }
+
+  /**
+   * エッジを削除（O(1)．最後のエッジが削除位置へ移動するため並び順は変わる）
+   *
+   * @return 削除したエッジ（存在しない場合はnull）
+   */
+  public GraphEdge removeEdge(String className, String referClassName, String edgeType) {
+    Integer position = edgeIndex.remove(new EdgeKey(className, referClassName, edgeType));
+    if (position == null) {
+      return null;
+    }
+    GraphEdge removed = graphEdges.get(position);
+    GraphEdge last = graphEdges.remove(graphEdges.size() - 1);
+    if (last != removed) {
+      graphEdges.set(position, last);
+      edgeIndex.put(keyOf(last), position);
+    }
+    return removed;
+  }
+
   public void addReferNode(String className, String referClassName, String edgeType) {
     GraphNode graphNode = getOrCreate(className);
     GraphNode referGraphNode = getOrCreate(referClassName);
@@ -28,7 +101,7 @@ public class CodeGraph {
 
   public void setNodeType(String className, String type) {
     GraphNode graphNode = getOrCreate(className);
-    graphNode.setType(type);
+    graphNode.setType(symbols.intern(type));
   }
 
   public void setNodeLinesOfCode(String className, int linesOfCode) {
@@ -38,45 +111,67 @@ public class CodeGraph {
 
   public void setNodeFilePath(String className, String filePath) {
     GraphNode graphNode = getOrCreate(className);
-    graphNode.setFilePath(filePath);
+    graphNode.setFilePath(symbols.intern(filePath));
+  }
+
+  /**
+   * 別のグラフをマージ（ノード属性は未設定の値のみ上書き）
+   */
+  public void merge(CodeGraph other) {
+    for (GraphNode otherNode : other.graphNodes) {
+      GraphNode graphNode = getOrCreate(otherNode.getNodeName());
+      if ("Unknown".equals(graphNode.getType()) && !"Unknown".equals(otherNode.getType())) {
+        graphNode.setType(symbols.intern(otherNode.getType()));
+      }
+      if (graphNode.getLinesOfCode() == -1 && otherNode.getLinesOfCode() != -1) {
+        graphNode.setLinesOfCode(otherNode.getLinesOfCode());
+      }
+      if (graphNode.getFilePath() == null && otherNode.getFilePath() != null) {
+        graphNode.setFilePath(symbols.intern(otherNode.getFilePath()));
+      }
+    }
+    for (GraphEdge otherEdge : other.graphEdges) {
+      addReferNode(
+          otherEdge.getSourceNode().getNodeName(),
+          otherEdge.getTargetNode().getNodeName(),
+          otherEdge.getType());
+    }
   }
 
   private GraphNode getOrCreate(String className) {
     GraphNode graphNode = findGraphNode(className);
     if (graphNode == null) {
-      graphNode = new GraphNode(className);
+      String name = symbols.intern(className);
+      graphNode = new GraphNode(name);
+      nodeIndex.put(name, graphNodes.size());
       graphNodes.add(graphNode);
     }
     return graphNode;
   }
 
   private GraphNode findGraphNode(String className) {
-    for (GraphNode node : graphNodes) {
-      if (node.getNodeName().equals(className)) {
-        return node;
-      }
-    }
-    return null;
+    Integer position = nodeIndex.get(className);
+    return position == null ? null : graphNodes.get(position);
   }
 
   private GraphEdge getOrCreateEdge(GraphNode source, GraphNode target, String edgeType) {
-    GraphEdge existingEdge = findEdge(source, target, edgeType);
-    if (existingEdge == null) {
-      existingEdge = new GraphEdge(source, target, edgeType);
-      graphEdges.add(existingEdge);
+    String type = symbols.intern(edgeType);
+    EdgeKey key = new EdgeKey(source.getNodeName(), target.getNodeName(), type);
+    Integer position = edgeIndex.get(key);
+    if (position != null) {
+      return graphEdges.get(position);
     }
-    return existingEdge;
+    GraphEdge edge = new GraphEdge(source, target, type);
+    edgeIndex.put(key, graphEdges.size());
+    graphEdges.add(edge);
+    return edge;
   }
 
-  private GraphEdge findEdge(GraphNode source, GraphNode target, String edgeType) {
-    for (GraphEdge edge : graphEdges) {
-      if (edge.getSourceNode().equals(source)
-          && edge.getTargetNode().equals(target)
-          && edge.getType().equals(edgeType)) {
-        return edge;
-      }
-    }
-    return null;
+  private static EdgeKey keyOf(GraphEdge edge) {
+    return new EdgeKey(
+        edge.getSourceNode().getNodeName(), edge.getTargetNode().getNodeName(), edge.getType());
   }
 
+  // エッジの同一性判定用キー
+  private record EdgeKey(String source, String target, String type) {}
 }
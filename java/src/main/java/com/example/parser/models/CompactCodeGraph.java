@@ -0,0 +1,261 @@
+package com.example.parser.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 整数IDとプリミティブ配列によるCodeGraphの読み取り専用表現
+ *
+ * ノードはID（完全修飾名）の辞書順に0からの整数で表し，隣接関係は
+ * 圧縮行（CSR）形式の配列で持つ．エッジの種類はEdgeTypeのbyte値．
+ * ノード・エッジごとのオブジェクトを持たないため，ワークスペース全体の
+ * グラフに対する探索や直列化をわずかなヒープで行える．
+ *
+ * 出力エッジ: ノードvの出力エッジは outOffsets[v] から outOffsets[v + 1] の範囲で，
+ * 各位置eについて終点が outTargets[e]，種類が outTypes[e]．
+ * 入力エッジも同様に inOffsets / inSources / inTypes で引ける．
+ */
+public final class CompactCodeGraph {
+  // 元のグラフのシンボル表（このグラフから作るグラフ・集約ノードのIDで共有）
+  private final SymbolTable symbols;
+
+  // ノード属性（インデックス = ノードID）
+  private final String[] ids;
+  private final byte[] nodeTypes;
+  private final String[] nodeTypeNames;
+  private final int[] linesOfCode;
+  private final String[] filePaths;
+
+  // 出力エッジ（CSR）
+  private final int[] outOffsets;
+  private final int[] outTargets;
+  private final byte[] outTypes;
+
+  // 入力エッジ（CSR）
+  private final int[] inOffsets;
+  private final int[] inSources;
+  private final byte[] inTypes;
+
+  private CompactCodeGraph(
+      SymbolTable symbols,
+      String[] ids,
+      byte[] nodeTypes,
+      String[] nodeTypeNames,
+      int[] linesOfCode,
+      String[] filePaths,
+      int[] outOffsets,
+      int[] outTargets,
+      byte[] outTypes,
+      int[] inOffsets,
+      int[] inSources,
+      byte[] inTypes) {
+    this.symbols = symbols;
+    this.ids = ids;
+    this.nodeTypes = nodeTypes;
+    this.nodeTypeNames = nodeTypeNames;
+    this.linesOfCode = linesOfCode;
+    this.filePaths = filePaths;
+    this.outOffsets = outOffsets;
+    this.outTargets = outTargets;
+    this.outTypes = outTypes;
+    this.inOffsets = inOffsets;
+    this.inSources = inSources;
+    this.inTypes = inTypes;
+  }
+
+  /**
+   * CodeGraphから構築（ノード数n・エッジ数mに対してO(n log n + m log n)）
+   *
+   * 各ノードのエッジはCodeGraphへの追加順に並ぶ．
+   *
+   * @throws IllegalArgumentException EdgeTypeにない種類のエッジを含む場合
+   */
+  public static CompactCodeGraph from(CodeGraph graph) {
+    GraphNode[] nodes = graph.getGraphNodes().toArray(new GraphNode[0]);
+    Arrays.sort(nodes, Comparator.comparing(GraphNode::getId));
+    int nodeCount = nodes.length;
+
+    String[] ids = new String[nodeCount];
+    byte[] nodeTypes = new byte[nodeCount];
+    int[] linesOfCode = new int[nodeCount];
+    String[] filePaths = new String[nodeCount];
+    List<String> typeNames = new ArrayList<>();
+    for (int i = 0; i < nodeCount; i++) {
+      GraphNode node = nodes[i];
+      ids[i] = node.getId();
+      nodeTypes[i] = typeCode(typeNames, node.getType());
+      linesOfCode[i] = node.getLinesOfCode();
+      filePaths[i] = node.getFilePath();
+    }
+
+    List<GraphEdge> edges = graph.getGraphEdges();
+    int edgeCount = edges.size();
+    int[] sources = new int[edgeCount];
+    int[] targets = new int[edgeCount];
+    byte[] types = new byte[edgeCount];
+    for (int e = 0; e < edgeCount; e++) {
+      GraphEdge edge = edges.get(e);
+      sources[e] = Arrays.binarySearch(ids, edge.getSourceNode().getId());
+      targets[e] = Arrays.binarySearch(ids, edge.getTargetNode().getId());
+      types[e] = EdgeType.fromLabel(edge.getType()).code();
+    }
+
+    int[] outOffsets = offsets(sources, nodeCount);
+    int[] outTargets = new int[edgeCount];
+    byte[] outTypes = new byte[edgeCount];
+    int[] inOffsets = offsets(targets, nodeCount);
+    int[] inSources = new int[edgeCount];
+    byte[] inTypes = new byte[edgeCount];
+
+    int[] outNext = Arrays.copyOf(outOffsets, nodeCount);
+    int[] inNext = Arrays.copyOf(inOffsets, nodeCount);
+    for (int e = 0; e < edgeCount; e++) {
+      int out = outNext[sources[e]]++;
+      outTargets[out] = targets[e];
+      outTypes[out] = types[e];
+      int in = inNext[targets[e]]++;
+      inSources[in] = sources[e];
+      inTypes[in] = types[e];
+    }
+
+    return new CompactCodeGraph(
+        graph.getSymbols(),
+        ids,
+        nodeTypes,
+        typeNames.toArray(new String[0]),
+        linesOfCode,
+        filePaths,
+        outOffsets,
+        outTargets,
+        outTypes,
+        inOffsets,
+        inSources,
+        inTypes);
+  }
+
+  // 端点ごとの件数から各行の開始位置を求める（長さはノード数 + 1）
+  private static int[] offsets(int[] endpoints, int nodeCount) {
+    int[] offsets = new int[nodeCount + 1];
+    for (int node : endpoints) {
+      offsets[node + 1]++;
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    return offsets;
+  }
+
+  private static byte typeCode(List<String> typeNames, String type) {
+    int index = typeNames.indexOf(type);
+    if (index < 0) {
+      if (typeNames.size() > Byte.MAX_VALUE) {
+        throw new IllegalArgumentException("Too many node types");
+      }
+      typeNames.add(type);
+      index = typeNames.size() - 1;
+    }
+    return (byte) index;
+  }
+
+  /**
+   * CodeGraphへ戻す
+   */
+  public CodeGraph toCodeGraph() {
+    CodeGraph graph = new CodeGraph(symbols);
+    for (int v = 0; v < ids.length; v++) {
+      graph.setNodeType(ids[v], getNodeType(v));
+      graph.setNodeLinesOfCode(ids[v], linesOfCode[v]);
+      graph.setNodeFilePath(ids[v], filePaths[v]);
+    }
+    for (int v = 0; v < ids.length; v++) {
+      for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+        graph.addReferNode(ids[v], ids[outTargets[e]], EdgeType.fromCode(outTypes[e]).getLabel());
+      }
+    }
+    return graph;
+  }
+
+  public SymbolTable getSymbols() {
+    return symbols;
+  }
+
+  public int nodeCount() {
+    return ids.length;
+  }
+
+  public int edgeCount() {
+    return outTargets.length;
+  }
+
+  /**
+   * IDからノード番号を求める（存在しない場合は-1）
+   */
+  public int indexOf(String id) {
+    int index = Arrays.binarySearch(ids, id);
+    return index >= 0 ? index : -1;
+  }
+
+  public String getId(int node) {
+    return ids[node];
+  }
+
+  public String getNodeType(int node) {
+    return nodeTypeNames[nodeTypes[node]];
+  }
+
+  public int getLinesOfCode(int node) {
+    return linesOfCode[node];
+  }
+
+  public String getFilePath(int node) {
+    return filePaths[node];
+  }
+
+  /** ノードの出力エッジの開始位置 */
+  public int outStart(int node) {
+    return outOffsets[node];
+  }
+
+  /** ノードの出力エッジの終了位置（この位置を含まない） */
+  public int outEnd(int node) {
+    return outOffsets[node + 1];
+  }
+
+  public int outTarget(int edge) {
+    return outTargets[edge];
+  }
+
+  public EdgeType outType(int edge) {
+    return EdgeType.fromCode(outTypes[edge]);
+  }
+
+  /** ノードの入力エッジの開始位置 */
+  public int inStart(int node) {
+    return inOffsets[node];
+  }
+
+  /** ノードの入力エッジの終了位置（この位置を含まない） */
+  public int inEnd(int node) {
+    return inOffsets[node + 1];
+  }
+
+  public int inSource(int edge) {
+    return inSources[edge];
+  }
+
+  public EdgeType inType(int edge) {
+    return EdgeType.fromCode(inTypes[edge]);
+  }
+
+  /**
+   * 配列部分のおおよそのバイト数（ID・ファイルパスの文字列自体は含まない）
+   */
+  public long estimatedBytes() {
+    long n = ids.length;
+    long m = outTargets.length;
+    // 参照2本（ID・ファイルパス）+ 種類1 + 行数4 + オフセット4 x 2
+    return n * (8 + 1 + 4 + 8) + 2 * 4 + m * 2 * (4 + 1);
+  }
+}
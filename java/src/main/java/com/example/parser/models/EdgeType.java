@@ -0,0 +1,51 @@
+package com.example.parser.models;
+
+/**
+ * エッジの種類
+ *
+ * CodeGraphでは文字列で保持している種類を，コンパクトな表現ではbyte値（ordinal）として扱う．
+ */
+public enum EdgeType {
+  OBJECT_CREATE("ObjectCreate"),
+  EXTENDS("Extends"),
+  IMPLEMENTS("Implements"),
+  TYPE_USE("TypeUse"),
+  METHOD_CALL("MethodCall");
+
+  private static final EdgeType[] VALUES = values();
+
+  private final String label;
+
+  EdgeType(String label) {
+    this.label = label;
+  }
+
+  /**
+   * CodeGraph上の種類名
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  public byte code() {
+    return (byte) ordinal();
+  }
+
+  public static EdgeType fromCode(byte code) {
+    return VALUES[code];
+  }
+
+  /**
+   * CodeGraph上の種類名から変換
+   *
+   * @throws IllegalArgumentException 未知の種類の場合
+   */
+  public static EdgeType fromLabel(String label) {
+    for (EdgeType type : VALUES) {
+      if (type.label.equals(label)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown edge type: " + label);
+  }
+}
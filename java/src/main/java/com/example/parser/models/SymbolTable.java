@@ -0,0 +1,35 @@
+package com.example.parser.models;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * 完全修飾名・パッケージ名・ファイルパスなどの文字列を共有するシンボル表
+ *
+ * 同じ内容の文字列をファイルごとに生成して各CodeGraphやキャッシュに保持すると，
+ * ワークスペース全体では同じ名前が何度も重複する．ここで正規化したインスタンスを
+ * 共有することで，内容ごとに1つだけを保持する．スレッドセーフ．
+ *
+ * 表は文字列を弱参照で保持し，どのグラフ・キャッシュからも参照されなくなった文字列は
+ * GCで取り除かれる．解析エンジンごとに1つ作り，そのエンジンのグラフとキャッシュで共有する．
+ */
+public final class SymbolTable {
+  private final Interner<String> symbols = Interners.newWeakInterner();
+
+  /**
+   * 同じ内容の共有インスタンスを返す（nullはnullのまま）
+   */
+  public String intern(String value) {
+    return value == null ? null : symbols.intern(value);
+  }
+
+  /**
+   * 完全修飾名のパッケージ部分（最後の"."より前）を共有インスタンスで返す
+   *
+   * デフォルトパッケージの場合は空文字列．
+   */
+  public String packageOf(String qualifiedName) {
+    int lastDot = qualifiedName.lastIndexOf('.');
+    return lastDot < 0 ? "" : intern(qualifiedName.substring(0, lastDot));
+  }
+}
@@ -0,0 +1,328 @@
+package com.example.parser.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * ファイル単位のグラフ（フラグメント）をマージしたワークスペース全体のグラフ
+ *
+ * フラグメントの追加・差し替え・削除を，全フラグメントを再マージせずに反映する．
+ * ノードは含まれるフラグメント数，エッジは含まれるフラグメント数で参照を数え，
+ * 0になったものをグラフから取り除く．
+ *
+ * ノード属性はCodeGraph.mergeと同じ規則（Unknown・-1・nullのみ上書き）で，
+ * ファイルパス順にフラグメントをマージした場合と同じ値になるよう決める．
+ * 既定値以外の属性を持つフラグメントだけを覚えておき，変化したノードの属性を
+ * それらから求め直す．
+ *
+ * スレッドセーフではない．
+ */
+public class WorkspaceGraph {
+  private static final String UNKNOWN_TYPE = "Unknown";
+
+  private final CodeGraph graph;
+
+  // ファイルパス -> フラグメント
+  private final Map<String, CodeGraph> fragments = new HashMap<>();
+
+  // ノード名 -> 参照数と属性の出どころ
+  private final Map<String, NodeState> nodeStates = new HashMap<>();
+
+  // エッジ -> 含まれるフラグメント数
+  private final Map<EdgeKey, Integer> edgeRefs = new HashMap<>();
+
+  public WorkspaceGraph(SymbolTable symbols) {
+    this.graph = new CodeGraph(symbols);
+  }
+
+  /**
+   * フラグメントをまとめて取り込んで構築（ファイルパス順に追加するため並び順は安定する．
+   * マージ済みグラフの名前は指定のシンボル表で共有）
+   */
+  public WorkspaceGraph(SymbolTable symbols, Map<String, CodeGraph> fragments) {
+    this(symbols);
+    new TreeMap<>(fragments).forEach(
+        (filePath, fragment) -> {
+          this.fragments.put(filePath, fragment);
+          fold(filePath, fragment, null);
+        });
+  }
+
+  /**
+   * マージ済みのグラフ（このオブジェクトの更新に合わせて変化するため，読み取り専用で使うこと）
+   */
+  public CodeGraph getGraph() {
+    return graph;
+  }
+
+  public int fragmentCount() {
+    return fragments.size();
+  }
+
+  public boolean containsFragment(String filePath) {
+    return fragments.containsKey(filePath);
+  }
+
+  /**
+   * 取り込み済みのフラグメント（ファイルパス -> グラフ．読み取り専用のビュー）
+   */
+  public Map<String, CodeGraph> getFragments() {
+    return Collections.unmodifiableMap(fragments);
+  }
+
+  /**
+   * 取り込み済みのフラグメント（ない場合はnull）
+   */
+  public CodeGraph getFragment(String filePath) {
+    return fragments.get(filePath);
+  }
+
+  /**
+   * フラグメントを差し替え，マージ済みグラフの変化を返す
+   *
+   * 同じオブジェクトでの差し替えは変化なしとして扱う．
+   *
+   * @param updated 追加・差し替えるフラグメント（ファイルパス -> グラフ）
+   * @param removed 取り除くフラグメントのファイルパス
+   */
+  public Change replaceFragments(Map<String, CodeGraph> updated, Collection<String> removed) {
+    ChangeTracker tracker = new ChangeTracker();
+    for (String filePath : removed) {
+      CodeGraph previous = fragments.remove(filePath);
+      if (previous != null) {
+        unfold(filePath, previous, tracker);
+      }
+    }
+    updated.forEach(
+        (filePath, fragment) -> {
+          CodeGraph previous = fragments.get(filePath);
+          if (previous == fragment) {
+            return;
+          }
+          if (previous != null) {
+            unfold(filePath, previous, tracker);
+          }
+          fragments.put(filePath, fragment);
+          fold(filePath, fragment, tracker);
+        });
+    return tracker.finish();
+  }
+
+  // フラグメントを取り込む（ノード -> エッジの順）
+  private void fold(String filePath, CodeGraph fragment, ChangeTracker tracker) {
+    for (GraphNode node : fragment.getGraphNodes()) {
+      String name = node.getNodeName();
+      if (tracker != null) {
+        tracker.touchNode(name);
+      }
+      NodeState state = nodeStates.get(name);
+      if (state == null) {
+        state = new NodeState();
+        nodeStates.put(name, state);
+        graph.setNodeType(name, UNKNOWN_TYPE);
+      }
+      state.refs++;
+      if (hasAttributes(node)) {
+        state.addSource(filePath);
+        resolveAttributes(name, state);
+      }
+    }
+    for (GraphEdge edge : fragment.getGraphEdges()) {
+      EdgeKey key = EdgeKey.of(edge);
+      if (tracker != null) {
+        tracker.touchEdge(key);
+      }
+      if (edgeRefs.merge(key, 1, Integer::sum) == 1) {
+        graph.addReferNode(key.source(), key.target(), key.type());
+      }
+    }
+  }
+
+  // フラグメントを取り除く（エッジ -> ノードの順）
+  private void unfold(String filePath, CodeGraph fragment, ChangeTracker tracker) {
+    for (GraphEdge edge : fragment.getGraphEdges()) {
+      EdgeKey key = EdgeKey.of(edge);
+      if (tracker != null) {
+        tracker.touchEdge(key);
+      }
+      if (edgeRefs.merge(key, -1, Integer::sum) == 0) {
+        edgeRefs.remove(key);
+        graph.removeEdge(key.source(), key.target(), key.type());
+      }
+    }
+    for (GraphNode node : fragment.getGraphNodes()) {
+      String name = node.getNodeName();
+      if (tracker != null) {
+        tracker.touchNode(name);
+      }
+      NodeState state = nodeStates.get(name);
+      if (--state.refs == 0) {
+        // このノードを含むエッジは参照数が0になり削除済み
+        nodeStates.remove(name);
+        graph.removeNode(name);
+      } else if (state.removeSource(filePath)) {
+        resolveAttributes(name, state);
+      }
+    }
+  }
+
+  private static boolean hasAttributes(GraphNode node) {
+    return !UNKNOWN_TYPE.equals(node.getType())
+        || node.getLinesOfCode() != -1
+        || node.getFilePath() != null;
+  }
+
+  // ファイルパス順に最初に見つかった既定値以外の属性を採用
+  private void resolveAttributes(String name, NodeState state) {
+    String type = UNKNOWN_TYPE;
+    int linesOfCode = -1;
+    String filePath = null;
+    for (String source : state.sources) {
+      GraphNode node = fragments.get(source).findNode(name);
+      if (UNKNOWN_TYPE.equals(type)) {
+        type = node.getType();
+      }
+      if (linesOfCode == -1) {
+        linesOfCode = node.getLinesOfCode();
+      }
+      if (filePath == null) {
+        filePath = node.getFilePath();
+      }
+    }
+    graph.setNodeType(name, type);
+    graph.setNodeLinesOfCode(name, linesOfCode);
+    graph.setNodeFilePath(name, filePath);
+  }
+
+  /**
+   * replaceFragmentsによるマージ済みグラフの変化
+   *
+   * @param addedNodes 追加されたノード
+   * @param updatedNodes 属性（種類・行数・ファイルパス）が変わったノード
+   * @param removedNodes 削除されたノードの名前
+   * @param addedEdges 追加されたエッジ
+   * @param removedEdges 削除されたエッジ
+   */
+  public record Change(
+      List<GraphNode> addedNodes,
+      List<GraphNode> updatedNodes,
+      List<String> removedNodes,
+      List<GraphEdge> addedEdges,
+      List<GraphEdge> removedEdges) {
+    public boolean isEmpty() {
+      return addedNodes.isEmpty()
+          && updatedNodes.isEmpty()
+          && removedNodes.isEmpty()
+          && addedEdges.isEmpty()
+          && removedEdges.isEmpty();
+    }
+  }
+
+  // 触れたノード・エッジの更新前の状態を覚え，最後に正味の変化を求める
+  private class ChangeTracker {
+    private final Map<String, NodeSnapshot> nodes = new LinkedHashMap<>();
+    private final Map<EdgeKey, GraphEdge> edges = new LinkedHashMap<>();
+
+    void touchNode(String name) {
+      if (!nodes.containsKey(name)) {
+        nodes.put(name, NodeSnapshot.of(graph.findNode(name)));
+      }
+    }
+
+    void touchEdge(EdgeKey key) {
+      if (!edges.containsKey(key)) {
+        edges.put(key, edgeRefs.containsKey(key) ? key.toEdge(graph) : null);
+      }
+    }
+
+    Change finish() {
+      List<GraphNode> addedNodes = new ArrayList<>();
+      List<GraphNode> updatedNodes = new ArrayList<>();
+      List<String> removedNodes = new ArrayList<>();
+      nodes.forEach(
+          (name, before) -> {
+            GraphNode after = graph.findNode(name);
+            if (before == null && after != null) {
+              addedNodes.add(after);
+            } else if (before != null && after == null) {
+              removedNodes.add(name);
+            } else if (before != null && !before.matches(after)) {
+              updatedNodes.add(after);
+            }
+          });
+
+      List<GraphEdge> addedEdges = new ArrayList<>();
+      List<GraphEdge> removedEdges = new ArrayList<>();
+      edges.forEach(
+          (key, before) -> {
+            boolean exists = edgeRefs.containsKey(key);
+            if (before == null && exists) {
+              addedEdges.add(key.toEdge(graph));
+            } else if (before != null && !exists) {
+              removedEdges.add(before);
+            }
+          });
+      return new Change(
+          Collections.unmodifiableList(addedNodes),
+          Collections.unmodifiableList(updatedNodes),
+          Collections.unmodifiableList(removedNodes),
+          Collections.unmodifiableList(addedEdges),
+          Collections.unmodifiableList(removedEdges));
+    }
+  }
+
+  private record NodeSnapshot(String type, int linesOfCode, String filePath) {
+    static NodeSnapshot of(GraphNode node) {
+      return node == null
+          ? null
+          : new NodeSnapshot(node.getType(), node.getLinesOfCode(), node.getFilePath());
+    }
+
+    boolean matches(GraphNode node) {
+      return Objects.equals(type, node.getType())
+          && linesOfCode == node.getLinesOfCode()
+          && Objects.equals(filePath, node.getFilePath());
+    }
+  }
+
+  private static class NodeState {
+    int refs;
+    // 既定値以外の属性を持つフラグメントのファイルパス（昇順．通常は宣言したファイルの1つだけ）
+    final List<String> sources = new ArrayList<>(1);
+
+    void addSource(String filePath) {
+      int index = Collections.binarySearch(sources, filePath);
+      if (index < 0) {
+        sources.add(-index - 1, filePath);
+      }
+    }
+
+    boolean removeSource(String filePath) {
+      int index = Collections.binarySearch(sources, filePath);
+      if (index < 0) {
+        return false;
+      }
+      sources.remove(index);
+      return true;
+    }
+  }
+
+  private record EdgeKey(String source, String target, String type) {
+    static EdgeKey of(GraphEdge edge) {
+      return new EdgeKey(
+          edge.getSourceNode().getNodeName(), edge.getTargetNode().getNodeName(), edge.getType());
+    }
+
+    // マージ済みグラフのノードを端点とするエッジ（グラフから削除した後も参照できる）
+    GraphEdge toEdge(CodeGraph graph) {
+      return new GraphEdge(graph.findNode(source), graph.findNode(target), type);
+    }
+  }
+}
@@ -0,0 +1,301 @@
+package com.example.parser.resolution;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.example.parser.jfr.CacheLookupEvent;
+import com.example.parser.jfr.SymbolResolutionEvent;
+import com.example.parser.models.SymbolTable;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithExtends;
+import com.github.javaparser.ast.nodeTypes.NodeWithImplements;
+import com.github.javaparser.ast.nodeTypes.NodeWithTypeParameters;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.github.javaparser.ast.type.VarType;
+import com.github.javaparser.ast.type.VoidType;
+import com.github.javaparser.resolution.UnsolvedSymbolException;
+
+/**
+ * 型解決結果のメモ化キャッシュ（全ステージ・全ファイル・全スレッドで共有）
+ *
+ * キーは型の文字列表現と，そのファイルのパッケージ/import，および外側の型の継承句．
+ * 解決に失敗した名前も記録し（ネガティブキャッシュ），次回は解決を試みずに失敗させる．
+ * ファイル内で宣言された型名や型パラメータを参照する型は文脈依存のためキャッシュしない．
+ */
+public class ResolutionCache {
+
+  /** キャッシュする解決結果の種類 */
+  public enum Kind {
+    /** ResolvedType#describe() */
+    DESCRIBE,
+    /** ResolvedReferenceType#getQualifiedName() */
+    QUALIFIED_NAME
+  }
+
+  private static final String UNRESOLVED = "\0unresolved";
+
+  private static final DataKey<String> UNIT_CONTEXT = new DataKey<>() {};
+  private static final DataKey<Set<String>> DECLARED_TYPES = new DataKey<>() {};
+  private static final DataKey<String> TYPE_CONTEXT = new DataKey<>() {};
+
+  private final boolean enabled;
+  // 保持する型名・解決結果を共有するシンボル表（文脈のキーは共有しない）
+  private final SymbolTable symbols;
+  private final Map<Key, String> entries = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder bypasses = new LongAdder();
+
+  public ResolutionCache() {
+    this(new SymbolTable());
+  }
+
+  /**
+   * @param symbols 型名・解決結果を共有するシンボル表（解析エンジンのものを渡す）
+   */
+  public ResolutionCache(SymbolTable symbols) {
+    this(symbols, true);
+  }
+
+  private ResolutionCache(SymbolTable symbols, boolean enabled) {
+    this.symbols = symbols;
+    this.enabled = enabled;
+  }
+
+  /** 常に解決を行うキャッシュ無効インスタンス */
+  public static ResolutionCache disabled() {
+    return new ResolutionCache(new SymbolTable(), false);
+  }
+
+  public String describe(Type type) {
+    return resolve(type, Kind.DESCRIBE);
+  }
+
+  public String qualifiedName(Type type) {
+    return resolve(type, Kind.QUALIFIED_NAME);
+  }
+
+  /** 全エントリを破棄する */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * 宣言された型が追加・削除された場合に，結果が変わりうるエントリだけを破棄する
+   *
+   * 対象の型の単純名を参照するエントリ（追加された型による名前の隠蔽も含む）と，
+   * 追加された型で解決できるようになりうる解決失敗の記録が対象．
+   *
+   * @param qualifiedNames 追加・削除された型の完全修飾名
+   */
+  public void invalidate(Collection<String> qualifiedNames) {
+    Set<String> simpleNames = new HashSet<>();
+    for (String qualifiedName : qualifiedNames) {
+      simpleNames.add(qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1));
+    }
+    entries.entrySet().removeIf(
+        entry -> entry.getValue() == UNRESOLVED || mentions(entry.getKey().name(), simpleNames));
+  }
+
+  // 型の文字列表現が指定の単純名のいずれかを識別子として含むか
+  private static boolean mentions(String typeName, Set<String> simpleNames) {
+    int start = -1;
+    for (int i = 0; i <= typeName.length(); i++) {
+      boolean part = i < typeName.length() && Character.isJavaIdentifierPart(typeName.charAt(i));
+      if (part && start < 0) {
+        start = i;
+      } else if (!part && start >= 0) {
+        if (simpleNames.contains(typeName.substring(start, i))) {
+          return true;
+        }
+        start = -1;
+      }
+    }
+    return false;
+  }
+
+  public Stats getStats() {
+    return new Stats(
+        hits.sum(), negativeHits.sum(), misses.sum(), bypasses.sum(), entries.size());
+  }
+
+  private String resolve(Type type, Kind kind) {
+    Function<Type, String> resolver = resolverFor(kind);
+    if (!enabled || !isCacheable(type)) {
+      bypasses.increment();
+      CacheLookupEvent.resolution("bypass", type);
+      return resolveSymbol(type, kind, resolver);
+    }
+
+    String name = type.asString();
+    Key key = new Key(kind, name, contextOf(type));
+    String cached = entries.get(key);
+    if (cached != null) {
+      if (cached == UNRESOLVED) {
+        negativeHits.increment();
+        CacheLookupEvent.resolution("negative-hit", type);
+        throw new UnsolvedSymbolException(name);
+      }
+      hits.increment();
+      CacheLookupEvent.resolution("hit", type);
+      return cached;
+    }
+
+    misses.increment();
+    CacheLookupEvent.resolution("miss", type);
+    // 保持するキー・値はシンボル表の共有インスタンスにする
+    Key stored = new Key(kind, symbols.intern(name), key.context());
+    try {
+      String resolved = symbols.intern(resolveSymbol(type, kind, resolver));
+      entries.put(stored, resolved);
+      return resolved;
+    } catch (RuntimeException e) {
+      entries.put(stored, UNRESOLVED);
+      throw e;
+    }
+  }
+
+  // シンボルソルバーでの解決（JFRの記録中はSymbolResolutionEventを記録）
+  private static String resolveSymbol(Type type, Kind kind, Function<Type, String> resolver) {
+    SymbolResolutionEvent event = new SymbolResolutionEvent();
+    event.begin();
+    String resolved = null;
+    try {
+      resolved = resolver.apply(type);
+      return resolved;
+    } finally {
+      event.finish(type, kind.name(), resolved);
+    }
+  }
+
+  private static Function<Type, String> resolverFor(Kind kind) {
+    return switch (kind) {
+      case DESCRIBE -> type -> type.resolve().describe();
+      case QUALIFIED_NAME -> type -> type.resolve().asReferenceType().getQualifiedName();
+    };
+  }
+
+  // ファイル内宣言の型や型パラメータを含む型は解決結果が位置に依存するため対象外
+  private static boolean isCacheable(Type type) {
+    if (type instanceof PrimitiveType || type instanceof VoidType || type instanceof VarType) {
+      return false;
+    }
+    List<ClassOrInterfaceType> referenced = type.findAll(ClassOrInterfaceType.class);
+    if (referenced.isEmpty()) {
+      return false;
+    }
+    Set<String> declared = declaredTypes(type);
+    Set<String> typeParameters = typeParametersInScope(type);
+    for (ClassOrInterfaceType ref : referenced) {
+      String simpleName = ref.getNameAsString();
+      if (declared.contains(simpleName) || typeParameters.contains(simpleName)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Set<String> declaredTypes(Node node) {
+    return node.findCompilationUnit()
+        .map(cu -> {
+          if (!cu.containsData(DECLARED_TYPES)) {
+            Set<String> names = new HashSet<>();
+            cu.walk(TypeDeclaration.class, decl -> names.add(decl.getNameAsString()));
+            cu.setData(DECLARED_TYPES, names);
+          }
+          return cu.getData(DECLARED_TYPES);
+        })
+        .orElse(Set.of());
+  }
+
+  private static Set<String> typeParametersInScope(Node node) {
+    Set<String> names = new HashSet<>();
+    Node current = node;
+    while (current != null) {
+      if (current instanceof NodeWithTypeParameters<?> withTypeParameters) {
+        for (TypeParameter typeParameter : withTypeParameters.getTypeParameters()) {
+          names.add(typeParameter.getNameAsString());
+        }
+      }
+      current = current.getParentNode().orElse(null);
+    }
+    return names;
+  }
+
+  // パッケージ/import（ファイル単位）と外側の型の継承句（型単位）を連結した文脈．
+  // ファイル・型ごとに異なる長い文字列なのでシンボル表には入れず，ASTのデータとして
+  // 同じファイル・型のキーで共有する
+  private static String contextOf(Type type) {
+    String unitContext = type.findCompilationUnit().map(ResolutionCache::unitContext).orElse("");
+    return enclosingType(type)
+        .map(decl -> typeContext(decl, unitContext))
+        .orElse(unitContext);
+  }
+
+  // 外側の型宣言（findAncestorは原型のClassを受け取るため，ここで型付けし直す）
+  @SuppressWarnings("unchecked")
+  private static Optional<TypeDeclaration<?>> enclosingType(Node node) {
+    return node.findAncestor(TypeDeclaration.class).map(decl -> (TypeDeclaration<?>) decl);
+  }
+
+  private static String unitContext(CompilationUnit cu) {
+    if (!cu.containsData(UNIT_CONTEXT)) {
+      String packageName =
+          cu.getPackageDeclaration().map(PackageDeclaration::getNameAsString).orElse("");
+      String imports =
+          cu.getImports().stream()
+              .map(ImportDeclaration::toString)
+              .map(String::strip)
+              .collect(Collectors.joining(";"));
+      cu.setData(UNIT_CONTEXT, packageName + "|" + imports);
+    }
+    return cu.getData(UNIT_CONTEXT);
+  }
+
+  private static String typeContext(TypeDeclaration<?> decl, String unitContext) {
+    if (!decl.containsData(TYPE_CONTEXT)) {
+      StringBuilder context = new StringBuilder(unitContext);
+      Node current = decl;
+      while (current != null) {
+        if (current instanceof NodeWithExtends<?> withExtends) {
+          withExtends.getExtendedTypes().forEach(t -> context.append("|e:").append(t.asString()));
+        }
+        if (current instanceof NodeWithImplements<?> withImplements) {
+          withImplements
+              .getImplementedTypes()
+              .forEach(t -> context.append("|i:").append(t.asString()));
+        }
+        current = current.getParentNode().orElse(null);
+      }
+      decl.setData(TYPE_CONTEXT, context.toString());
+    }
+    return decl.getData(TYPE_CONTEXT);
+  }
+
+  private record Key(Kind kind, String name, String context) {}
+
+  /** ヒット/ミス統計 */
+  public record Stats(long hits, long negativeHits, long misses, long bypasses, int size) {
+    public double hitRate() {
+      long lookups = hits + negativeHits + misses;
+      return lookups == 0 ? 0.0 : (double) (hits + negativeHits) / lookups;
+    }
+  }
+}
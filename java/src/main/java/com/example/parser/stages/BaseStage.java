@@ -1,33 +1,104 @@
 package com.example.parser.stages;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import com.example.parser.jfr.AnalysisEvents;
+import com.example.parser.jfr.StageEvent;
+import com.example.parser.metrics.StageMetrics;
 import com.example.parser.models.CodeGraph;
+import com.example.parser.resolution.ResolutionCache;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.type.Type;
 
 public abstract class BaseStage {
 
   private static final Logger logger = Logger.getLogger(BaseStage.class.getName());
 
+  // 型解決キャッシュ（エンジン内の全ステージで共有）
+  private final ResolutionCache resolutionCache;
+
+  // ノードの成否とファイルごとのコスト（コストはStagePipelineが記録）
+  private final StageMetrics metrics = new StageMetrics(getClass().getSimpleName());
+
+  protected BaseStage() {
+    this(ResolutionCache.disabled());
+  }
+
+  protected BaseStage(ResolutionCache resolutionCache) {
+    this.resolutionCache = resolutionCache;
+  }
+
   // Pipeline Stage - 共通の処理フローを定義（デフォルト実装）
   public void process(CompilationUnit cu, CodeGraph codeGraph) {
+    StageEvent event = new StageEvent();
+    event.begin();
+    long start = System.nanoTime();
     List<? extends Node> nodes = extractNodes(cu);
 
+    int failed = 0;
     for (Node node : nodes) {
-      try {
-        processNode(node, codeGraph);
-      } catch (Exception e) {
-        handleError(node, e);
+      if (!accept(node, codeGraph)) {
+        failed++;
       }
     }
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.stage = getClass().getSimpleName();
+      event.filePath = AnalysisEvents.filePathOf(cu);
+      event.nodeCount = nodes.size();
+      event.failedCount = failed;
+      event.stageTime = System.nanoTime() - start;
+      event.commit();
+    }
+  }
+
+  // 単一走査モードから1ノードずつ呼ばれる（処理に失敗した場合はfalse）
+  public final boolean accept(Node node, CodeGraph codeGraph) {
+    try {
+      processNode(node, codeGraph);
+      metrics.recordResolved();
+      return true;
+    } catch (Exception e) {
+      // handleErrorがオーバーライドされても失敗を数えるためここで記録
+      metrics.recordFailed();
+      handleError(node, e);
+      return false;
+    }
+  }
+
+  public StageMetrics getMetrics() {
+    return metrics;
+  }
+
+  // サブクラスで実装: 処理対象のノード型（オプション）
+  // 空でなければ単一走査モードでこの型のノードだけがprocessNodeに渡される
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of();
   }
 
   // サブクラスで実装: 解析対象のノードを抽出（オプション）
+  // デフォルトはgetNodeTypesに該当するノードを走査順に収集
   protected List<? extends Node> extractNodes(CompilationUnit cu) {
-    return List.of();
+    List<Class<? extends Node>> nodeTypes = getNodeTypes();
+    if (nodeTypes.isEmpty()) {
+      return List.of();
+    }
+    List<Node> nodes = new ArrayList<>();
+    cu.walk(
+        node -> {
+          for (Class<? extends Node> nodeType : nodeTypes) {
+            if (nodeType.isInstance(node)) {
+              nodes.add(node);
+              return;
+            }
+          }
+        });
+    return nodes;
   }
 
   // サブクラスで実装: ノードを処理してグラフに追加（オプション）
@@ -49,6 +120,16 @@ public abstract class BaseStage {
         .orElse("Unknown");
   }
 
+  // 型を解決してdescribe()を返す（キャッシュ経由）
+  protected String describeType(Type type) {
+    return resolutionCache.describe(type);
+  }
+
+  // 参照型を解決して完全修飾名を返す（キャッシュ経由）
+  protected String qualifiedTypeName(Type type) {
+    return resolutionCache.qualifiedName(type);
+  }
+
   // 完全名取得用のユーティリティ
   protected static String getFullyQualifiedName(ClassOrInterfaceDeclaration clazz) {
     return clazz.getFullyQualifiedName().orElse("Unknown");
@@ -1,10 +1,9 @@
 package com.example.parser.stages;
 
 import java.util.List;
-import java.util.function.Function;
 
 import com.example.parser.models.CodeGraph;
-import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.AnnotationDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.EnumDeclaration;
@@ -12,28 +11,23 @@ import com.github.javaparser.ast.body.EnumDeclaration;
 public class ClassTypeStage extends BaseStage {
 
   @Override
-  public void process(CompilationUnit cu, CodeGraph codeGraph) {
-    List<ClassOrInterfaceDeclaration> classOrInterfaces =
-        cu.findAll(ClassOrInterfaceDeclaration.class);
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of(
+        ClassOrInterfaceDeclaration.class, EnumDeclaration.class, AnnotationDeclaration.class);
+  }
 
-    // Classの収集
-    for (ClassOrInterfaceDeclaration decl : classOrInterfaces) {
+  @Override
+  protected void processNode(Node node, CodeGraph codeGraph) {
+    if (node instanceof ClassOrInterfaceDeclaration decl) {
+      // Classの収集
       String className = getFullyQualifiedName(decl);
       String type = determineClassType(decl); // Interface, AbstractClass, Classを判定
       codeGraph.setNodeType(className, type);
+    } else if (node instanceof EnumDeclaration decl) {
+      codeGraph.setNodeType(decl.getFullyQualifiedName().orElse("Unknown"), "Enum");
+    } else if (node instanceof AnnotationDeclaration decl) {
+      codeGraph.setNodeType(decl.getFullyQualifiedName().orElse("Unknown"), "Annotation");
     }
-
-    setNodeType(
-        cu.findAll(EnumDeclaration.class),
-        codeGraph,
-        "Enum",
-        decl -> decl.getFullyQualifiedName().orElse("Unknown"));
-    setNodeType(
-        cu.findAll(AnnotationDeclaration.class),
-        codeGraph,
-        "Annotation",
-        decl -> decl.getFullyQualifiedName().orElse("Unknown"));
-
   }
 
   private String determineClassType(ClassOrInterfaceDeclaration decl) {
@@ -45,14 +39,4 @@ public class ClassTypeStage extends BaseStage {
       return "Class";
     }
   }
-
-  private static <T> void setNodeType(
-      List<T> decls,
-      CodeGraph codeGraph,
-      String type,
-      Function<T, String> nameResolver) {
-    for (T decl : decls) {
-      codeGraph.setNodeType(nameResolver.apply(decl), type);
-    }
-  }
 }
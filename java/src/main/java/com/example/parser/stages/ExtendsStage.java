@@ -3,16 +3,24 @@ package com.example.parser.stages;
 import java.util.List;
 
 import com.example.parser.models.CodeGraph;
-import com.github.javaparser.ast.CompilationUnit;
+import com.example.parser.resolution.ResolutionCache;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 
 public class ExtendsStage extends BaseStage {
 
+  public ExtendsStage() {
+    super();
+  }
+
+  public ExtendsStage(ResolutionCache resolutionCache) {
+    super(resolutionCache);
+  }
+
   @Override
-  protected List<? extends Node> extractNodes(CompilationUnit cu) {
-    return cu.findAll(ClassOrInterfaceDeclaration.class);
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of(ClassOrInterfaceDeclaration.class);
   }
 
   @Override
@@ -22,8 +30,7 @@ public class ExtendsStage extends BaseStage {
 
     for (ClassOrInterfaceType extendedType : decl.getExtendedTypes()) {
       try {
-        var resolvedType = extendedType.resolve();
-        String targetClassName = resolvedType.describe();
+        String targetClassName = describeType(extendedType);
         codeGraph.addReferNode(sourceClassName, targetClassName, "Extends");
       } catch (Exception e) {
         // 型解決できない場合はスキップ
@@ -1,10 +1,10 @@
 package com.example.parser.stages;
 
 import java.util.List;
-import java.util.function.Function;
 
 import com.example.parser.models.CodeGraph;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.AnnotationDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.EnumDeclaration;
@@ -12,35 +12,29 @@ import com.github.javaparser.ast.body.EnumDeclaration;
 public class FilePathStage extends BaseStage {
 
   @Override
-  public void process(CompilationUnit cu, CodeGraph codeGraph) {
-    cu.getStorage().ifPresent(storage -> {
-      String filePath = storage.getPath().toString();
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of(
+        ClassOrInterfaceDeclaration.class, EnumDeclaration.class, AnnotationDeclaration.class);
+  }
 
-      setFilePath(
-          cu.findAll(ClassOrInterfaceDeclaration.class),
-          codeGraph,
-          filePath,
-          BaseStage::getFullyQualifiedName);
-      setFilePath(
-          cu.findAll(EnumDeclaration.class),
-          codeGraph,
-          filePath,
-          decl -> decl.getFullyQualifiedName().orElse("Unknown"));
-      setFilePath(
-          cu.findAll(AnnotationDeclaration.class),
-          codeGraph,
-          filePath,
-          decl -> decl.getFullyQualifiedName().orElse("Unknown"));
-    });
+  @Override
+  protected void processNode(Node node, CodeGraph codeGraph) {
+    node.findCompilationUnit()
+        .flatMap(CompilationUnit::getStorage)
+        .ifPresent(storage -> {
+          String filePath = storage.getPath().toString();
+          codeGraph.setNodeFilePath(resolveName(node), filePath);
+        });
   }
 
-  private static <T> void setFilePath(
-      List<T> decls,
-      CodeGraph graph,
-      String filePath,
-      Function<T, String> nameResolver) {
-    for (T decl : decls) {
-      graph.setNodeFilePath(nameResolver.apply(decl), filePath);
+  private static String resolveName(Node node) {
+    if (node instanceof ClassOrInterfaceDeclaration decl) {
+      return getFullyQualifiedName(decl);
+    } else if (node instanceof EnumDeclaration decl) {
+      return decl.getFullyQualifiedName().orElse("Unknown");
+    } else if (node instanceof AnnotationDeclaration decl) {
+      return decl.getFullyQualifiedName().orElse("Unknown");
     }
+    return "Unknown";
   }
 }
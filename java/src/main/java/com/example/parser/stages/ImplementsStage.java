@@ -3,16 +3,24 @@ package com.example.parser.stages;
 import java.util.List;
 
 import com.example.parser.models.CodeGraph;
-import com.github.javaparser.ast.CompilationUnit;
+import com.example.parser.resolution.ResolutionCache;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 
 public class ImplementsStage extends BaseStage {
 
+  public ImplementsStage() {
+    super();
+  }
+
+  public ImplementsStage(ResolutionCache resolutionCache) {
+    super(resolutionCache);
+  }
+
   @Override
-  protected List<? extends Node> extractNodes(CompilationUnit cu) {
-    return cu.findAll(ClassOrInterfaceDeclaration.class);
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of(ClassOrInterfaceDeclaration.class);
   }
 
   @Override
@@ -21,8 +29,7 @@ public class ImplementsStage extends BaseStage {
     String sourceClassName = getFullyQualifiedName(decl);
 
     for (ClassOrInterfaceType implementedType : decl.getImplementedTypes()) {
-      var resolvedType = implementedType.resolve();
-      String targetClassName = resolvedType.describe();
+      String targetClassName = describeType(implementedType);
       codeGraph.addReferNode(sourceClassName, targetClassName, "Implements");
     }
   }
@@ -3,7 +3,6 @@ package com.example.parser.stages;
 import java.util.List;
 
 import com.example.parser.models.CodeGraph;
-import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.AnnotationDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
@@ -13,32 +12,25 @@ import com.github.javaparser.ast.body.EnumDeclaration;
 public class LinesOfCodeStage extends BaseStage {
 
   @Override
-  public void process(CompilationUnit cu, CodeGraph codeGraph) {
-    // クラス/インターフェースの行数収集
-    List<ClassOrInterfaceDeclaration> classOrInterfaces = cu.findAll(ClassOrInterfaceDeclaration.class);
-
-    for (ClassOrInterfaceDeclaration decl : classOrInterfaces) {
-      String className = getFullyQualifiedName(decl);
-      int linesOfCode = calculateLinesOfCode(decl);
-      codeGraph.setNodeLinesOfCode(className, linesOfCode);
-    }
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of(
+        ClassOrInterfaceDeclaration.class, EnumDeclaration.class, AnnotationDeclaration.class);
+  }
 
-    // Enumの行数収集
-    List<EnumDeclaration> enums = cu.findAll(EnumDeclaration.class);
-    for (EnumDeclaration enumDecl : enums) {
+  @Override
+  protected void processNode(Node node, CodeGraph codeGraph) {
+    if (node instanceof ClassOrInterfaceDeclaration decl) {
+      // クラス/インターフェースの行数収集
+      codeGraph.setNodeLinesOfCode(getFullyQualifiedName(decl), calculateLinesOfCode(decl));
+    } else if (node instanceof EnumDeclaration enumDecl) {
+      // Enumの行数収集
       String enumName = enumDecl.getFullyQualifiedName().orElse("Unknown");
-      int linesOfCode = calculateLinesOfCode(enumDecl);
-      codeGraph.setNodeLinesOfCode(enumName, linesOfCode);
-    }
-
-    // アノテーションの行数収集
-    List<AnnotationDeclaration> annotations = cu.findAll(AnnotationDeclaration.class);
-    for (AnnotationDeclaration annotationDecl : annotations) {
+      codeGraph.setNodeLinesOfCode(enumName, calculateLinesOfCode(enumDecl));
+    } else if (node instanceof AnnotationDeclaration annotationDecl) {
+      // アノテーションの行数収集
       String annotationName = annotationDecl.getFullyQualifiedName().orElse("Unknown");
-      int linesOfCode = calculateLinesOfCode(annotationDecl);
-      codeGraph.setNodeLinesOfCode(annotationName, linesOfCode);
+      codeGraph.setNodeLinesOfCode(annotationName, calculateLinesOfCode(annotationDecl));
     }
-
   }
 
   /** ノードの行数を計算 開始行と終了行の差分で計算（コメントや空行も含む） */
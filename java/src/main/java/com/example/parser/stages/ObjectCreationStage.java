@@ -3,15 +3,23 @@ package com.example.parser.stages;
 import java.util.List;
 
 import com.example.parser.models.CodeGraph;
-import com.github.javaparser.ast.CompilationUnit;
+import com.example.parser.resolution.ResolutionCache;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
 
 public class ObjectCreationStage extends BaseStage {
 
+  public ObjectCreationStage() {
+    super();
+  }
+
+  public ObjectCreationStage(ResolutionCache resolutionCache) {
+    super(resolutionCache);
+  }
+
   @Override
-  protected List<? extends Node> extractNodes(CompilationUnit cu) {
-    return cu.findAll(ObjectCreationExpr.class);
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of(ObjectCreationExpr.class);
   }
 
   @Override
@@ -19,9 +27,7 @@ public class ObjectCreationStage extends BaseStage {
     ObjectCreationExpr obj = (ObjectCreationExpr) node;
 
     // ターゲットクラス名の取得
-    var resolvedType = obj.getType().resolve();
-    var referenceType = resolvedType.asReferenceType();
-    String targetClassName = referenceType.getQualifiedName();
+    String targetClassName = qualifiedTypeName(obj.getType());
 
     // ソースクラス名の取得
     String sourceClassName = getSourceClassName(obj);
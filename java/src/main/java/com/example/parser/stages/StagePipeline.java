@@ -0,0 +1,194 @@
+package com.example.parser.stages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.parser.Cancellation;
+import com.example.parser.jfr.AnalysisEvents;
+import com.example.parser.jfr.StageEvent;
+import com.example.parser.metrics.StageMetrics;
+import com.example.parser.metrics.ThreadMeter;
+import com.example.parser.models.CodeGraph;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+
+/**
+ * ステージ群をCompilationUnitに適用するパイプライン
+ *
+ * FUSEDモードではASTを一度だけ走査し，各ノードをその型を登録したステージへ振り分ける．
+ * getNodeTypesを持たないステージは走査後に従来どおりprocessで実行する．
+ *
+ * ステージごとのウォール時間・CPU時間・割り当てバイト数をファイル単位で各ステージの
+ * StageMetricsへ記録する．FUSEDモードで走査を共有するステージは，ノード単位の計測を
+ * 有効にした場合（setNodeTimingまたはdependviz.metrics.nodeTiming）とJFRの記録中のみ，
+ * ノードごとのウォール時間・割り当てバイト数をステージごとに合計して記録する．
+ * スレッドのCPU時間はノードごとに読むには重いため，これらのステージでは記録しない．
+ */
+public class StagePipeline {
+
+  public enum Mode {
+    /** ステージごとにASTを走査（従来の動作） */
+    SEQUENTIAL,
+    /** ASTを一度だけ走査して全ステージへ振り分け */
+    FUSED
+  }
+
+  // FUSEDモードでキャンセルを確認する間隔（走査したノード数）
+  private static final int CANCEL_CHECK_INTERVAL = 256;
+
+  private final List<BaseStage> stages;
+  private final List<BaseStage> unfusedStages;
+  // 単一走査で処理するステージか（ステージ登録順）
+  private final boolean[] fused;
+  private final Mode mode;
+
+  // FUSEDモードでノードごとの処理時間・割り当てバイト数を計測するか（既定は無効）
+  private volatile boolean nodeTiming = Boolean.getBoolean("dependviz.metrics.nodeTiming");
+
+  // ノードの具象クラス -> 処理するステージの位置（ステージ登録順）
+  private final ClassValue<int[]> dispatchTable =
+      new ClassValue<>() {
+        @Override
+        protected int[] computeValue(Class<?> nodeClass) {
+          List<Integer> targets = new ArrayList<>();
+          for (int i = 0; i < stages.size(); i++) {
+            for (Class<? extends Node> nodeType : stages.get(i).getNodeTypes()) {
+              if (nodeType.isAssignableFrom(nodeClass)) {
+                targets.add(i);
+                break;
+              }
+            }
+          }
+          return targets.stream().mapToInt(Integer::intValue).toArray();
+        }
+      };
+
+  public StagePipeline(List<BaseStage> stages, Mode mode) {
+    this.stages = List.copyOf(stages);
+    this.unfusedStages =
+        this.stages.stream().filter(stage -> stage.getNodeTypes().isEmpty()).toList();
+    this.fused = new boolean[this.stages.size()];
+    for (int i = 0; i < fused.length; i++) {
+      fused[i] = !this.stages.get(i).getNodeTypes().isEmpty();
+    }
+    this.mode = mode;
+  }
+
+  public List<BaseStage> getStages() {
+    return stages;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * FUSEDモードのノード単位の計測を切り替える（無効の場合，走査を共有するステージは
+   * ファイル数だけを記録する）
+   */
+  public void setNodeTiming(boolean enabled) {
+    nodeTiming = enabled;
+  }
+
+  public void process(CompilationUnit cu, CodeGraph codeGraph) {
+    process(cu, codeGraph, Cancellation.NONE);
+  }
+
+  /**
+   * ステージ間（FUSEDモードでは走査中も一定ノードごと）にキャンセルを確認しながら実行
+   */
+  public void process(CompilationUnit cu, CodeGraph codeGraph, Cancellation cancellation) {
+    if (mode == Mode.SEQUENTIAL) {
+      for (BaseStage stage : stages) {
+        cancellation.checkCanceled();
+        StageMetrics.Span span = StageMetrics.Span.start();
+        stage.process(cu, codeGraph);
+        span.finish(stage.getMetrics());
+      }
+      return;
+    }
+
+    // JFRの記録中のみ，ステージごとの処理ノード数・失敗数を数えてイベントにする
+    StageEvent[] events = StageEvent.isRecording() ? beginFusedEvents() : null;
+    int[] nodeCounts = events != null ? new int[stages.size()] : null;
+    int[] failedCounts = events != null ? new int[stages.size()] : null;
+    // ステージごとの合計（ウォール時間・割り当てバイト数．計測する場合のみ）
+    boolean timed = nodeTiming || events != null;
+    long[] wall = new long[stages.size()];
+    long[] allocated = new long[stages.size()];
+    int[] visited = {0};
+    cu.walk(
+        node -> {
+          if (++visited[0] % CANCEL_CHECK_INTERVAL == 0) {
+            cancellation.checkCanceled();
+          }
+          for (int i : dispatchTable.get(node.getClass())) {
+            if (!timed) {
+              stages.get(i).accept(node, codeGraph);
+              continue;
+            }
+            long wallStart = System.nanoTime();
+            long allocatedStart = ThreadMeter.allocatedBytes();
+            boolean processed = stages.get(i).accept(node, codeGraph);
+            wall[i] += System.nanoTime() - wallStart;
+            allocated[i] += ThreadMeter.allocatedBytes() - allocatedStart;
+            if (nodeCounts != null) {
+              nodeCounts[i]++;
+              failedCounts[i] += processed ? 0 : 1;
+            }
+          }
+        });
+    for (int i = 0; i < stages.size(); i++) {
+      if (!fused[i]) {
+        continue;
+      }
+      if (timed) {
+        stages.get(i).getMetrics().recordFile(wall[i], allocated[i]);
+      } else {
+        stages.get(i).getMetrics().recordFile();
+      }
+    }
+    if (events != null) {
+      commitFusedEvents(cu, events, wall, nodeCounts, failedCounts);
+    }
+    for (BaseStage stage : unfusedStages) {
+      cancellation.checkCanceled();
+      StageMetrics.Span span = StageMetrics.Span.start();
+      stage.process(cu, codeGraph);
+      span.finish(stage.getMetrics());
+    }
+  }
+
+  // 走査を共有するステージごとのイベント（期間は走査全体，stageTimeはステージ分の合計）
+  private StageEvent[] beginFusedEvents() {
+    StageEvent[] events = new StageEvent[stages.size()];
+    for (int i = 0; i < events.length; i++) {
+      if (fused[i]) {
+        events[i] = new StageEvent();
+        events[i].begin();
+      }
+    }
+    return events;
+  }
+
+  private void commitFusedEvents(
+      CompilationUnit cu, StageEvent[] events, long[] wall, int[] nodeCounts, int[] failedCounts) {
+    String filePath = AnalysisEvents.filePathOf(cu);
+    for (int i = 0; i < events.length; i++) {
+      StageEvent event = events[i];
+      if (event == null) {
+        continue;
+      }
+      event.end();
+      if (event.shouldCommit()) {
+        event.stage = stages.get(i).getClass().getSimpleName();
+        event.filePath = filePath;
+        event.nodeCount = nodeCounts[i];
+        event.failedCount = failedCounts[i];
+        event.fused = true;
+        event.stageTime = wall[i];
+        event.commit();
+      }
+    }
+  }
+}
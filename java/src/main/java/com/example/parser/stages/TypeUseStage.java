@@ -3,7 +3,8 @@ package com.example.parser.stages;
 import java.util.List;
 
 import com.example.parser.models.CodeGraph;
-import com.github.javaparser.ast.CompilationUnit;
+import com.example.parser.resolution.ResolutionCache;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
@@ -13,45 +14,57 @@ import com.github.javaparser.ast.expr.VariableDeclarationExpr;
 
 public class TypeUseStage extends BaseStage {
 
+  public TypeUseStage() {
+    super();
+  }
+
+  public TypeUseStage(ResolutionCache resolutionCache) {
+    super(resolutionCache);
+  }
+
   @Override
-  public void process(CompilationUnit cu, CodeGraph codeGraph) {
-    // クラスごとに処理
-    List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
-    for (ClassOrInterfaceDeclaration decl : classes) {
-      String className = getFullyQualifiedName(decl);
-
-      // フィールドの型使用
-      for (FieldDeclaration field : decl.getFields()) {
-        try {
-          String target = field.getElementType().resolve().describe();
-          codeGraph.addReferNode(className, target, "TypeUse");
-        } catch (Exception e) {
-          // 型解決失敗時はスキップ
-        }
+  public List<Class<? extends Node>> getNodeTypes() {
+    return List.of(ClassOrInterfaceDeclaration.class, VariableDeclarationExpr.class);
+  }
+
+  @Override
+  protected void processNode(Node node, CodeGraph codeGraph) {
+    if (node instanceof ClassOrInterfaceDeclaration decl) {
+      processClass(decl, codeGraph);
+    } else if (node instanceof VariableDeclarationExpr var) {
+      // ローカル変数の型使用
+      for (VariableDeclarator declarator : var.getVariables()) {
+        String target = describeType(declarator.getType());
+        String source = getSourceClassName(var);
+        codeGraph.addReferNode(source, target, "TypeUse");
       }
+    }
+  }
+
+  // クラスごとに処理
+  private void processClass(ClassOrInterfaceDeclaration decl, CodeGraph codeGraph) {
+    String className = getFullyQualifiedName(decl);
 
-      // メソッドの型使用
-      for (MethodDeclaration method : decl.getMethods()) {
-        // 戻り値型
-        String target = method.getType().resolve().describe();
+    // フィールドの型使用
+    for (FieldDeclaration field : decl.getFields()) {
+      try {
+        String target = describeType(field.getElementType());
         codeGraph.addReferNode(className, target, "TypeUse");
-        // パラメータ型
-        for (Parameter param : method.getParameters()) {
-          String paramTarget = param.getType().resolve().describe();
-          codeGraph.addReferNode(className, paramTarget, "TypeUse");
-        }
+      } catch (Exception e) {
+        // 型解決失敗時はスキップ
       }
     }
 
-    // ローカル変数の型使用
-    List<VariableDeclarationExpr> vars = cu.findAll(VariableDeclarationExpr.class);
-    for (VariableDeclarationExpr var : vars) {
-      for (VariableDeclarator declarator : var.getVariables()) {
-        String target = declarator.getType().resolve().describe();
-        String source = getSourceClassName(var);
-        codeGraph.addReferNode(source, target, "TypeUse");
+    // メソッドの型使用
+    for (MethodDeclaration method : decl.getMethods()) {
+      // 戻り値型
+      String target = describeType(method.getType());
+      codeGraph.addReferNode(className, target, "TypeUse");
+      // パラメータ型
+      for (Parameter param : method.getParameters()) {
+        String paramTarget = describeType(param.getType());
+        codeGraph.addReferNode(className, paramTarget, "TypeUse");
       }
     }
-
   }
 }
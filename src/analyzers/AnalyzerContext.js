@@ -58,12 +58,12 @@ class AnalyzerContext {
         return analyzer.isFileSupported(filePath);
     }
 
-    async analyzeProject() {
+    async analyzeProject(options = {}) {
         const analyzer = this.getActiveAnalyzer();
         if (!analyzer || typeof analyzer.analyze !== 'function') {
             return null;
         }
-        return analyzer.analyze();
+        return analyzer.analyze(options);
     }
 
     async analyzeFile(filePath) {
@@ -74,6 +74,56 @@ class AnalyzerContext {
         return analyzer.analyzeFile(filePath);
     }
 
+    /**
+     * サーバー側で保持しているプロジェクト全体のグラフを取得（対応するアナライザーのみ）
+     * @returns {Promise<Object|null>} グラフデータ（取得できない場合はnull）
+     */
+    async getWorkspaceGraph() {
+        const analyzer = this.getActiveAnalyzer();
+        if (!analyzer || typeof analyzer.getWorkspaceGraph !== 'function') {
+            return null;
+        }
+        return analyzer.getWorkspaceGraph();
+    }
+
+    /**
+     * サーバー側のグラフから部分グラフを取得（対応するアナライザーのみ）
+     * @param {string} kind - 'neighborhood' | 'slice' | 'shortestPath'
+     * @param {Object} params - 問い合わせのパラメータ
+     * @returns {Promise<Object|null>} グラフデータ（取得できない場合はnull）
+     */
+    async queryGraph(kind, params) {
+        const analyzer = this.getActiveAnalyzer();
+        if (!analyzer || typeof analyzer.queryGraph !== 'function') {
+            return null;
+        }
+        return analyzer.queryGraph(kind, params);
+    }
+
+    /**
+     * サーバー側のグラフをモジュール・パッケージ単位に集約して取得（対応するアナライザーのみ）
+     * @param {Object} params - 集約のパラメータ
+     * @returns {Promise<Object|null>} グラフデータ（取得できない場合はnull）
+     */
+    async getAggregatedGraph(params) {
+        const analyzer = this.getActiveAnalyzer();
+        if (!analyzer || typeof analyzer.getAggregatedGraph !== 'function') {
+            return null;
+        }
+        return analyzer.getAggregatedGraph(params);
+    }
+
+    /**
+     * グラフの差分通知を購読（差分を通知できるアナライザーのみ）
+     * @param {Function} listener - 差分を受け取るコールバック
+     * @returns {vscode.Disposable[]} 購読の解除用
+     */
+    onDidReceiveGraphDelta(listener) {
+        return Object.values(this._analyzers)
+            .filter(analyzer => typeof analyzer.onDidReceiveGraphDelta === 'function')
+            .map(analyzer => analyzer.onDidReceiveGraphDelta(listener));
+    }
+
     async stopAll() {
         const analyzers = Object.values(this._analyzers);
         for (const analyzer of analyzers) {
@@ -1,9 +1,16 @@
 const vscode = require('vscode');
 const path = require('path');
-const { LanguageClient, TransportKind } = require('vscode-languageclient/node');
-const { mergeGraphData, validateGraphData } = require('../utils/graph');
+const { LanguageClient, TransportKind, ProgressType } = require('vscode-languageclient/node');
+const { validateGraphData, mergeGraphData, decodeCompactGraph } = require('../utils/graph');
 const BaseAnalyzer = require('./BaseAnalyzer');
 
+// 部分グラフの問い合わせの種類とリクエスト名
+const GRAPH_QUERY_METHODS = {
+    neighborhood: 'dependviz/getNeighborhood',
+    slice: 'dependviz/getSlice',
+    shortestPath: 'dependviz/getShortestPath'
+};
+
 /**
  * JavaAnalyzer
  * Language Serverを使用してJavaプロジェクトを解析
@@ -23,6 +30,8 @@ class JavaAnalyzer extends BaseAnalyzer {
                 { type: 'Class', defaultEnabled: true, defaultColor: '#157df4ff' },
                 { type: 'AbstractClass', defaultEnabled: true, defaultColor: '#f03e9dff' },
                 { type: 'Interface', defaultEnabled: true, defaultColor: '#26f9a5ff' },
+                { type: 'Package', defaultEnabled: true, defaultColor: '#f59e0bff' },
+                { type: 'Module', defaultEnabled: true, defaultColor: '#a855f7ff' },
                 { type: 'Unknown', defaultEnabled: false, defaultColor: '#9ca3af' }
             ],
             edge: [
@@ -40,6 +49,11 @@ class JavaAnalyzer extends BaseAnalyzer {
         this.context = context;
         this.client = null;
         this.outputChannel = null;
+        // 実行中のワークスペース解析（新しい解析の開始時にキャンセル）
+        this._workspaceAnalysis = null;
+        // 編集後にサーバーから届くワークスペースグラフの差分
+        this._graphDeltaEmitter = new vscode.EventEmitter();
+        this.onDidReceiveGraphDelta = this._graphDeltaEmitter.event;
     }
 
     isFileSupported(filePath) {
@@ -113,6 +127,10 @@ class JavaAnalyzer extends BaseAnalyzer {
                 this.outputChannel.appendLine(`State: ${event.oldState} -> ${event.newState}`);
             });
 
+            this.client.onNotification('dependviz/graphDelta', (delta) => {
+                this._graphDeltaEmitter.fire(delta);
+            });
+
             this.client.onNotification('window/logMessage', (params) => {
                 const type = typeof params.type === 'number' ? params.type : 4;
                 const label = type === 1 ? 'Error' : type === 2 ? 'Warn' : 'Log';
@@ -152,6 +170,7 @@ class JavaAnalyzer extends BaseAnalyzer {
     }
 
     async stop() {
+        this._workspaceAnalysis?.cancel();
         await this.stopLanguageClient();
     }
 
@@ -176,15 +195,8 @@ class JavaAnalyzer extends BaseAnalyzer {
         }
 
         try {
-            const result = await this.client.sendRequest('dependviz/getFileDependencyGraph', fileUri);
-            let data = result;
-            if (typeof result === 'string') {
-                data = JSON.parse(result);
-            }
-            if (!data || typeof data !== 'object') {
-                throw new Error('Analyzer response must be an object');
-            }
-            validateGraphData(data);
+            const result = await this.client.sendRequest('dependviz/getCompactFileDependencyGraph', fileUri);
+            const data = this._parseGraphResponse(result);
             return { nodes: data.nodes, links: data.links };
         } catch (error) {
             const message = `Failed to get file dependency graph: ${error.message}`;
@@ -199,6 +211,83 @@ class JavaAnalyzer extends BaseAnalyzer {
         }
     }
 
+    /**
+     * サーバーが保持しているワークスペースグラフを再解析せずに取得
+     * @returns {Promise<Object|null>} グラフデータ（未解析・未起動の場合はnull）
+     */
+    async getWorkspaceGraph() {
+        if (!this.client) {
+            return null;
+        }
+        const result = await this.client.sendRequest('dependviz/getCompactWorkspaceGraph');
+        if (!result) {
+            return null;
+        }
+        const data = this._parseGraphResponse(result);
+        return { nodes: data.nodes, links: data.links, version: data.graphVersion };
+    }
+
+    /**
+     * サーバー側のワークスペースグラフから部分グラフを取得
+     * @param {'neighborhood'|'slice'|'shortestPath'} kind - 問い合わせの種類
+     * @param {Object} params - nodeId/filePath, targetId, depth, direction, edgeTypes
+     * @returns {Promise<Object|null>} グラフデータ（ワークスペース未解析・未起動の場合はnull）
+     */
+    async queryGraph(kind, params) {
+        const method = GRAPH_QUERY_METHODS[kind];
+        if (!method) throw new Error(`Unknown graph query: ${kind}`);
+        if (!this.client) {
+            return null;
+        }
+        const result = await this.client.sendRequest(method, params);
+        if (!result) {
+            return null;
+        }
+        const data = this._parseGraphResponse(result);
+        return { nodes: data.nodes, links: data.links };
+    }
+
+    /**
+     * サーバー側のワークスペースグラフをモジュール・パッケージ単位に集約して取得
+     * @param {Object} params - level ('module' | 'package'), expand (展開する集約ノードID), edgeTypes
+     * @returns {Promise<Object|null>} グラフデータ（ワークスペース未解析・未起動の場合はnull）
+     */
+    async getAggregatedGraph(params) {
+        if (!this.client) {
+            return null;
+        }
+        const result = await this.client.sendRequest('dependviz/getAggregatedGraph', params);
+        if (!result) {
+            return null;
+        }
+        const data = this._parseGraphResponse(result);
+        return { nodes: data.nodes, links: data.links };
+    }
+
+    /**
+     * レスポンスをグラフデータとして解釈
+     * コンパクト形式の場合はノード・リンクを展開し、それ以外のフィールドはそのまま残す
+     * @private
+     */
+    _parseGraphResponse(result) {
+        let data = result;
+        if (typeof result === 'string') {
+            data = JSON.parse(result);
+        }
+        if (!data || typeof data !== 'object') {
+            throw new Error('Analyzer response must be an object');
+        }
+        if (data.format !== undefined) {
+            const { processedFiles, totalFiles, analyzedFiles, failedFiles, graphVersion } = data;
+            data = {
+                processedFiles, totalFiles, analyzedFiles, failedFiles, graphVersion,
+                ...decodeCompactGraph(data)
+            };
+        }
+        validateGraphData(data);
+        return data;
+    }
+
     async analyzeFile(filePath) {
         return this._analyzeFileInternal(filePath, { openDocument: true });
     }
@@ -216,63 +305,95 @@ class JavaAnalyzer extends BaseAnalyzer {
 
     /**
      * プロジェクト全体を解析
+     * ファイルの探索・並列解析・マージはすべてサーバー側で行う
+     * @param {Object} [options]
+     * @param {Function} [options.onPartialResult] - 解析済みファイルのグラフ（チャンク）を受け取るコールバック
+     * @returns {Promise<Object|undefined>} グラフデータ（キャンセルされた場合はundefined）
      */
-    async analyze() {
+    async analyze({ onPartialResult } = {}) {
+        // 前回の解析がまだ動いていればサーバー側の処理ごとキャンセル
+        this._workspaceAnalysis?.cancel();
+        const cancellation = new vscode.CancellationTokenSource();
+        this._workspaceAnalysis = cancellation;
+
         try {
             // Language Clientを起動
             await this.startLanguageClient();
 
-            const javaFiles = await vscode.workspace.findFiles('**/*.java', '**/node_modules/**');
-
-            if (javaFiles.length === 0) {
-                vscode.window.showWarningMessage('Javaファイルが見つかりませんでした');
-                return { nodes: [], links: [] };
-            }
-
-            const mergedGraph = { nodes: [], links: [] };
-            let successCount = 0;
-            let errorCount = 0;
-
-            await vscode.window.withProgress({
+            const data = await vscode.window.withProgress({
                 location: vscode.ProgressLocation.Notification,
-                title: `Javaプロジェクトを解析中 (0/${javaFiles.length})...`,
-                cancellable: false
-            }, async (progress) => {
-                const increment = 100 / javaFiles.length;
-                for (let i = 0; i < javaFiles.length; i++) {
-                    const file = javaFiles[i];
+                title: 'Javaプロジェクトを解析中...',
+                cancellable: true
+            }, async (progress, token) => {
+                token.onCancellationRequested(() => cancellation.cancel());
+                // 途中結果は $/progress でチャンクごとに届き，最終応答は集計だけになる
+                // （グラフはチャンクをマージして組み立てる）
+                const graph = { nodes: [], links: [] };
+                const partialResultToken = `dependviz-workspace-${Date.now()}`;
+                const subscription = this.client.onProgress(new ProgressType(), partialResultToken, (value) => {
+                    if (cancellation.token.isCancellationRequested) {
+                        return;
+                    }
+                    let chunk;
                     try {
-                        const graphData = await this._analyzeFileInternal(file.fsPath);
-                        mergeGraphData(mergedGraph, graphData);
-                        successCount++;
+                        chunk = this._parseGraphResponse(value);
                     } catch (error) {
-                        const message = `Failed to analyze file: ${file.fsPath}: ${error.message}`;
-                        console.error(message, error);
-                        if (this.outputChannel) {
-                            this.outputChannel.appendLine(message);
-                            if (error.stack) {
-                                this.outputChannel.appendLine(error.stack);
-                            }
-                        }
-                        errorCount++;
-                    } finally {
-                        progress.report({
-                            message: `(${i + 1}/${javaFiles.length})`,
-                            increment
+                        console.warn('Ignored invalid partial result', error);
+                        return;
+                    }
+                    progress.report({ message: `${chunk.processedFiles}/${chunk.totalFiles}ファイル` });
+                    if (onPartialResult) {
+                        // 表示側のマージで属性が書き換わらないよう，ノード・リンクは複製して渡す
+                        onPartialResult({
+                            nodes: chunk.nodes.map(node => ({ ...node })),
+                            links: chunk.links.map(link => ({ ...link }))
                         });
                     }
+                    mergeGraphData(graph, chunk);
+                });
+                try {
+                    const result = await this.client.sendRequest(
+                        'dependviz/getCompactWorkspaceDependencyGraph',
+                        { partialResultToken },
+                        cancellation.token
+                    );
+                    const summary = this._parseGraphResponse(result);
+                    if (summary.nodes.length > 0 || summary.links.length > 0) {
+                        // 途中結果を送らなかったサーバーは全体を応答する
+                        return summary;
+                    }
+                    return { ...summary, nodes: graph.nodes, links: graph.links };
+                } finally {
+                    subscription.dispose();
                 }
             });
+
+            const successCount = data.analyzedFiles ?? 0;
+            const errorCount = data.failedFiles ?? 0;
+            if (successCount + errorCount === 0) {
+                vscode.window.showWarningMessage('Javaファイルが見つかりませんでした');
+                return { nodes: [], links: [] };
+            }
+
             // TODO: 現在エラー検知が甘い
             vscode.window.showInformationMessage(
-                `解析完了: ${successCount}ファイル成功, ${errorCount}ファイル失敗 (${mergedGraph.nodes.length}ノード, ${mergedGraph.links.length}リンク)`
+                `解析完了: ${successCount}ファイル成功, ${errorCount}ファイル失敗 (${data.nodes.length}ノード, ${data.links.length}リンク)`
             );
 
-            return mergedGraph;
+            // versionは以降の差分通知の適用に使用
+            return { nodes: data.nodes, links: data.links, version: data.graphVersion };
 
         } catch (error) {
+            if (cancellation.token.isCancellationRequested) {
+                return undefined;
+            }
             vscode.window.showErrorMessage(`解析失敗: ${error.message}`);
             throw error;
+        } finally {
+            if (this._workspaceAnalysis === cancellation) {
+                this._workspaceAnalysis = null;
+            }
+            cancellation.dispose();
         }
     }
 }
@@ -12,12 +12,69 @@ function registerCommands(providers) {
             graphViewProvider.syncToWebview();
         }),
         vscode.commands.registerCommand('forceGraphViewer.analyzeProject', async () => {
-            const graphData = await analyzerManager.analyzeProject();
-            if (!graphData) {
+            // 途中結果が届いた時点から段階的に描画し，完了後に全体で置き換える
+            let receivedPartialResult = false;
+            const graphData = await analyzerManager.analyzeProject({
+                onPartialResult: (chunk) => {
+                    if (!receivedPartialResult) {
+                        receivedPartialResult = true;
+                        graphViewProvider.setGraphData({ nodes: [], links: [] });
+                    }
+                    graphViewProvider.mergeGraphData(chunk);
+                }
+            });
+            if (graphData === null) {
                 return vscode.window.showErrorMessage('有効なアナライザーが選択されていません');
             }
+            if (!graphData) {
+                // キャンセルされた（途中結果は表示したまま）
+                return;
+            }
             graphViewProvider.setGraphData(graphData);
         }),
+        vscode.commands.registerCommand('forceGraphViewer.showNeighborhood', async () => {
+            const editor = vscode.window.activeTextEditor;
+            if (!editor) {
+                return vscode.window.showErrorMessage('アクティブなエディタがありません');
+            }
+
+            // スライスの設定（深度・向き）でサーバー側のグラフから近傍だけを取得
+            const controls = graphViewProvider.controls;
+            const direction = controls.enableForwardSlice === controls.enableBackwardSlice
+                ? 'both'
+                : (controls.enableForwardSlice ? 'forward' : 'backward');
+            try {
+                const graphData = await analyzerManager.queryGraph('neighborhood', {
+                    filePath: editor.document.uri.fsPath,
+                    depth: controls.sliceDepth,
+                    direction
+                });
+                if (!graphData) {
+                    return vscode.window.showErrorMessage('先にプロジェクトを解析してください');
+                }
+                graphViewProvider.setGraphData(graphData);
+            } catch (error) {
+                vscode.window.showErrorMessage(`近傍の取得失敗: ${error.message}`);
+            }
+        }),
+        vscode.commands.registerCommand('forceGraphViewer.showModuleOverview', async () => {
+            // モジュール単位から始め、集約ノードのクリックでパッケージ・クラスへ展開
+            const shown = await graphViewProvider.showAggregatedGraph('module');
+            if (!shown) {
+                vscode.window.showErrorMessage('先にプロジェクトを解析してください');
+            }
+        }),
+        vscode.commands.registerCommand('forceGraphViewer.showWorkspaceGraph', async () => {
+            try {
+                const graphData = await analyzerManager.getWorkspaceGraph();
+                if (!graphData) {
+                    return vscode.window.showErrorMessage('先にプロジェクトを解析してください');
+                }
+                graphViewProvider.setGraphData(graphData);
+            } catch (error) {
+                vscode.window.showErrorMessage(`グラフの取得失敗: ${error.message}`);
+            }
+        }),
         vscode.commands.registerCommand('forceGraphViewer.analyzeCurrentFile', async () => {
             const editor = vscode.window.activeTextEditor;
             if (!editor) {
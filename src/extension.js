@@ -62,6 +62,8 @@ function activate(context) {
     configSubject.notifyAll();
 
     const analyzerManager = new AnalyzerContext(context, configSubject);
+    graphViewProvider.setGraphSource(() => analyzerManager.getWorkspaceGraph());
+    graphViewProvider.setAggregationSource(params => analyzerManager.getAggregatedGraph(params));
 
     const providers = {
         settingsProvider,
@@ -76,7 +78,10 @@ function activate(context) {
         ...filterProvider.registerCommands(),
         ...graphViewProvider.registerCommands()
     ];
-    const eventHandlers = setupEventHandlers(graphViewProvider, configSubject);
+    const eventHandlers = [
+        ...setupEventHandlers(graphViewProvider, configSubject),
+        ...analyzerManager.onDidReceiveGraphDelta(delta => graphViewProvider.applyGraphDelta(delta))
+    ];
 
     context.subscriptions.push(...commands, ...providerCommands, ...eventHandlers, analyzerManager);
 }
@@ -2,7 +2,7 @@ const vscode = require('vscode');
 const fs = require('fs');
 const path = require('path');
 const { BaseProvider } = require('./BaseProvider');
-const { validateGraphData, mergeGraphData } = require('../utils/graph');
+const { validateGraphData, mergeGraphData, applyGraphDelta } = require('../utils/graph');
 const { COLORS } = require('../configuration/ConfigurationRepository');
 const {
     EXTENSION_TO_WEBVIEW,
@@ -10,6 +10,9 @@ const {
 } = require('../bridge/MessageTypes');
 const WebviewBridge = require('../bridge/WebviewBridge');
 
+// 保留する差分の上限
+const MAX_PENDING_DELTAS = 100;
+
 /**
  * Graph Viewを提供するTreeDataProvider実装
  * 主にWebviewとの通信を管理する
@@ -22,6 +25,17 @@ class GraphViewProvider extends BaseProvider {
         this._data = { nodes: [], links: [] };
         this._dataVersion = 0;
 
+        // 表示中のデータに対応するサーバー側グラフの版（差分を適用できない場合はnull）
+        this._graphVersion = null;
+        // 対応する全体データより先に届いた差分
+        this._pendingDeltas = [];
+        // 差分を取りこぼした場合に全体データを取り直す関数（未設定の場合はnull）
+        this._graphSource = null;
+        this._resyncing = false;
+        // 集約表示の取得元と，表示中の集約の状態（集約表示でない場合はnull）
+        this._aggregationSource = null;
+        this._aggregation = null;
+
         this._updateQueue = [];
         this._updating = false;
 
@@ -44,6 +58,10 @@ class GraphViewProvider extends BaseProvider {
             this.syncToWebview();
         }
 
+        if (message.type === WEBVIEW_TO_EXTENSION.EXPAND_NODE && message.payload?.node?.id) {
+            this.expandAggregatedNode(message.payload.node.id);
+        }
+
         if (message.type === WEBVIEW_TO_EXTENSION.FOCUS_NODE && message.payload?.node?.filePath) {
             vscode.window.showTextDocument(
                 vscode.Uri.file(message.payload.node.filePath)
@@ -72,6 +90,54 @@ class GraphViewProvider extends BaseProvider {
         this.syncToWebview();
     }
 
+    /**
+     * 差分を適用できなくなった場合の全体データの取得元を設定
+     * @param {Function} source - グラフデータ（versionを含む）またはnullを返す非同期関数
+     */
+    setGraphSource(source) {
+        this._graphSource = source;
+    }
+
+    /**
+     * 集約表示の取得元を設定
+     * @param {Function} source - 集約のパラメータを受け取り、グラフデータまたはnullを返す非同期関数
+     */
+    setAggregationSource(source) {
+        this._aggregationSource = source;
+    }
+
+    /**
+     * モジュール・パッケージ単位に集約したグラフを表示
+     * 集約ノードをクリックすると一段細かく展開する
+     * @param {'module'|'package'} level - 集約の粒度
+     * @returns {Promise<boolean>} 表示できたか（サーバー側のグラフがない場合はfalse）
+     */
+    async showAggregatedGraph(level = 'module') {
+        return this._loadAggregatedGraph({ level, expand: [] });
+    }
+
+    async expandAggregatedNode(id) {
+        if (!this._aggregation || this._aggregation.expand.includes(id)) return;
+        await this._loadAggregatedGraph({
+            ...this._aggregation,
+            expand: [...this._aggregation.expand, id]
+        });
+    }
+
+    async _loadAggregatedGraph(aggregation) {
+        if (!this._aggregationSource) return false;
+        try {
+            const data = await this._aggregationSource(aggregation);
+            if (!data) return false;
+            this.setGraphData(data);
+            this._aggregation = aggregation;
+            return true;
+        } catch (error) {
+            console.error('Failed to load aggregated graph', error);
+            return false;
+        }
+    }
+
     mergeGraphData(newData) {
         mergeGraphData(this._data, newData);
         this._dataVersion++;
@@ -85,9 +151,71 @@ class GraphViewProvider extends BaseProvider {
             links: data.links ?? []
         };
         this._dataVersion++;
+        this._graphVersion = typeof data.version === 'number' ? data.version : null;
+        this._aggregation = null;
+        if (this._graphVersion !== null) {
+            this._drainPendingDeltas();
+        }
         this.syncToWebview();
     }
 
+    /**
+     * サーバーから届いた差分を適用し、Webviewへは差分のみを送る
+     * 表示中のデータより新しい版を前提とする差分は、全体データが届くまで保留する
+     * @param {Object} delta - 差分（baseVersion -> version）
+     */
+    applyGraphDelta(delta) {
+        if (this._graphVersion === null || delta.baseVersion > this._graphVersion) {
+            this._pendingDeltas.push(delta);
+            if (this._pendingDeltas.length > MAX_PENDING_DELTAS) {
+                this._pendingDeltas.shift();
+                // 途中の差分が届いていないため、表示中のデータからは追いつけない
+                if (this._graphVersion !== null) {
+                    this._resyncGraphData();
+                }
+            }
+            return;
+        }
+        if (delta.baseVersion !== this._graphVersion) {
+            // 表示中のデータに反映済み
+            return;
+        }
+
+        applyGraphDelta(this._data, delta);
+        const baseDataVersion = this._dataVersion++;
+        this._graphVersion = delta.version;
+        this._sendToWebview(EXTENSION_TO_WEBVIEW.GRAPH_DELTA, {
+            delta,
+            baseDataVersion,
+            dataVersion: this._dataVersion
+        });
+        this._drainPendingDeltas();
+    }
+
+    async _resyncGraphData() {
+        if (!this._graphSource || this._resyncing) return;
+        this._resyncing = true;
+        try {
+            const data = await this._graphSource();
+            if (data) {
+                this.setGraphData(data);
+            }
+        } catch (error) {
+            console.error('Failed to resync graph data', error);
+        } finally {
+            this._resyncing = false;
+        }
+    }
+
+    _drainPendingDeltas() {
+        const pending = this._pendingDeltas;
+        this._pendingDeltas = [];
+        pending
+            .filter(delta => delta.baseVersion >= this._graphVersion)
+            .sort((a, b) => a.baseVersion - b.baseVersion)
+            .forEach(delta => this.applyGraphDelta(delta));
+    }
+
     /**
      * データ更新を処理（ノードフォーカスなど）
      * ConfigurationObserverのupdate(controls)とは異なる
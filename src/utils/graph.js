@@ -5,6 +5,17 @@ function validateGraphData(data) {
 }
 
 
+/**
+ * リンクの同一性判定用キー
+ * @param {Object} link - リンク（source/targetはIDまたはノードオブジェクト）
+ * @returns {string} キー
+ */
+function linkKey(link) {
+    const sourceId = typeof link.source === 'object' ? link.source.id : link.source;
+    const targetId = typeof link.target === 'object' ? link.target.id : link.target;
+    return `${sourceId}-${link.type}-${targetId}`;
+}
+
 /**
  * グラフデータをマージ（重複を排除）
  * Java側のCodeGraph.merge()ロジックと同等の処理
@@ -42,13 +53,6 @@ function mergeGraphData(target, source) {
         }
     });
 
-    // リンクの重複チェック用キー生成
-    const linkKey = (link) => {
-        const sourceId = typeof link.source === 'object' ? link.source.id : link.source;
-        const targetId = typeof link.target === 'object' ? link.target.id : link.target;
-        return `${sourceId}-${link.type}-${targetId}`;
-    };
-
     // 既存リンクのキーセット
     const existingLinkKeys = new Set(target.links.map(linkKey));
 
@@ -62,7 +66,81 @@ function mergeGraphData(target, source) {
     });
 }
 
+/**
+ * コンパクト形式（dependviz-compact/1）のグラフを通常のグラフデータへ展開
+ * ノードIDは文字列テーブル、リンクは[始点, 終点, 種類]のインデックス列で届く
+ * 集約したグラフの場合はノードにmemberCount、リンクにweightを付ける
+ * @param {Object} compact - サーバーから受け取ったコンパクト形式のグラフ
+ * @returns {{nodes: Object[], links: Object[]}} グラフデータ
+ */
+function decodeCompactGraph(compact) {
+    if (!compact || compact.format !== 'dependviz-compact/1') {
+        throw new Error(`Unsupported graph format: ${compact?.format}`);
+    }
+    const { ids, nodeTypes, types, linesOfCode, filePaths, files, edgeTypes, links } = compact;
+    const { memberCounts, weights } = compact;
+
+    const nodes = new Array(ids.length);
+    for (let i = 0; i < ids.length; i++) {
+        nodes[i] = {
+            id: ids[i],
+            name: ids[i],
+            type: nodeTypes[types[i]],
+            linesOfCode: linesOfCode[i],
+            filePath: files[i] === -1 ? null : filePaths[files[i]]
+        };
+        if (memberCounts) {
+            nodes[i].memberCount = memberCounts[i];
+        }
+    }
+
+    const decodedLinks = new Array(links.length / 3);
+    for (let i = 0, j = 0; i < links.length; i += 3, j++) {
+        decodedLinks[j] = {
+            source: ids[links[i]],
+            target: ids[links[i + 1]],
+            type: edgeTypes[links[i + 2]]
+        };
+        if (weights) {
+            decodedLinks[j].weight = weights[j];
+        }
+    }
+    return { nodes, links: decodedLinks };
+}
+
+/**
+ * サーバーから届いた差分（dependviz/graphDelta）をグラフデータへ適用
+ * 既存のノードオブジェクトはそのまま残して属性のみ更新する
+ * @param {Object} target - 適用先のグラフデータ
+ * @param {Object} delta - 差分
+ */
+function applyGraphDelta(target, delta) {
+    const removedNodes = new Set(delta.removedNodes ?? []);
+    const removedLinks = new Set((delta.removedLinks ?? []).map(linkKey));
+    const updatedNodes = new Map((delta.updatedNodes ?? []).map(node => [node.id, node]));
+
+    if (removedNodes.size > 0) {
+        target.nodes = target.nodes.filter(node => !removedNodes.has(node.id));
+    }
+    for (const node of target.nodes) {
+        const updated = updatedNodes.get(node.id);
+        if (updated) {
+            node.type = updated.type;
+            node.linesOfCode = updated.linesOfCode;
+            node.filePath = updated.filePath;
+        }
+    }
+    target.nodes.push(...(delta.addedNodes ?? []));
+
+    if (removedLinks.size > 0) {
+        target.links = target.links.filter(link => !removedLinks.has(linkKey(link)));
+    }
+    target.links.push(...(delta.addedLinks ?? []));
+}
+
 module.exports = {
     validateGraphData,
-    mergeGraphData
+    mergeGraphData,
+    decodeCompactGraph,
+    applyGraphDelta
 };
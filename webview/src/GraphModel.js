@@ -26,6 +26,44 @@ class GraphModel {
     this._version = typeof version === 'number' ? version : this._version + 1;
   }
 
+  /**
+   * 差分を適用
+   * 既存のノードオブジェクト（レイアウト上の位置を持つ）はそのまま残し、
+   * 追加・削除されたノード/リンクと属性の変化のみを反映する
+   * @param {Object} delta - 差分（addedNodes、updatedNodes、removedNodes、addedLinks、removedLinks）
+   * @param {number} version - 適用後のデータバージョン
+   * @returns {boolean} ノード/リンクの構成が変わった場合true
+   */
+  applyDelta(delta, version) {
+    const getId = v => (typeof v === 'object' ? v.id : v);
+    const linkKey = link => `${getId(link.source)}-${link.type}-${getId(link.target)}`;
+
+    (delta.updatedNodes || []).forEach(updated => {
+      const node = this._nodeById.get(updated.id);
+      if (node) {
+        node.type = updated.type;
+        node.linesOfCode = updated.linesOfCode;
+        node.filePath = updated.filePath;
+      }
+    });
+
+    const removedNodes = new Set(delta.removedNodes || []);
+    const removedLinks = new Set((delta.removedLinks || []).map(linkKey));
+    const addedNodes = delta.addedNodes || [];
+    const addedLinks = delta.addedLinks || [];
+    const structureChanged = removedNodes.size > 0 || removedLinks.size > 0 ||
+      addedNodes.length > 0 || addedLinks.length > 0;
+
+    if (structureChanged) {
+      const nodes = this._nodes.filter(node => !removedNodes.has(node.id)).concat(addedNodes);
+      const links = this._links.filter(link => !removedLinks.has(linkKey(link))).concat(addedLinks);
+      this._nodes = this._preprocessNodes(nodes);
+      this._links = this._preprocessLinks(links);
+    }
+    this._version = version;
+    return structureChanged;
+  }
+
   /**
    * ノードIDでノードを検索
    * @param {string|number} nodeId - ノードID
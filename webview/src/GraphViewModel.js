@@ -91,6 +91,7 @@ class GraphViewModel {
 
     const handlers = {
       [EXTENSION_TO_WEBVIEW.GRAPH_UPDATE]: payload => this._handleGraphUpdate(payload || {}),
+      [EXTENSION_TO_WEBVIEW.GRAPH_DELTA]: payload => this._handleGraphDelta(payload || {}),
       [EXTENSION_TO_WEBVIEW.VIEW_UPDATE]: payload => this._handleViewUpdate(payload || {}),
       [EXTENSION_TO_WEBVIEW.NODE_FOCUS]: payload => this._executeFocusNodeCommand(payload || {}),
       [EXTENSION_TO_WEBVIEW.FOCUS_CLEAR]: () => this._executeClearFocusCommand()
@@ -121,6 +122,28 @@ class GraphViewModel {
     }
   }
 
+  /**
+   * グラフ差分メッセージを処理
+   * MVVMパターン: Modelへ差分のみを反映し、構成が変わった場合だけレイアウトを再開
+   * @param {Object} payload - 差分データ（delta、baseDataVersion、dataVersion）
+   * @private
+   */
+  _handleGraphDelta(payload) {
+    if (!payload.delta) return;
+    if (payload.baseDataVersion !== this._model.version) {
+      // 前提のデータを持っていない（全体の更新を待つ）
+      console.warn('[DependViz] Ignored graph delta for version', payload.baseDataVersion);
+      return;
+    }
+    const structureChanged = this._model.applyDelta(payload.delta, payload.dataVersion);
+    if (this._presentationState.focusedNode &&
+        !this._model.findNode(this._presentationState.focusedNode.id)) {
+      this._presentationState.focusedNode = null;
+    }
+    this._computePresentationSlice();
+    this._viewContext.update(this._createRenderingContext(), { reheatSimulation: structureChanged });
+  }
+
   /**
    * ビュー更新メッセージを処理
    * MVVMパターン: プレゼンテーション状態の更新とViewへの反映
@@ -327,11 +350,15 @@ class GraphViewModel {
   /**
    * ノードクリックイベントを処理
    * MVVMパターン: ユーザーインタラクションの処理
-   * Extensionにメッセージを送信してファイルを開く
+   * Extensionにメッセージを送信してファイルを開く（集約ノードの場合は展開する）
    * @param {Object} node - クリックされたノード
    * @private
    */
   _handleNodeClickCommand(node) {
+    if (node && !node.filePath && node.memberCount !== undefined) {
+      this._sendMessage(WEBVIEW_TO_EXTENSION.EXPAND_NODE, { node: { id: node.id } });
+      return;
+    }
     if (!node?.filePath) return;
     this._sendMessage(WEBVIEW_TO_EXTENSION.FOCUS_NODE, {
       node: {
@@ -12,6 +12,8 @@
 export const EXTENSION_TO_WEBVIEW = {
   /** グラフデータと設定を更新 */
   GRAPH_UPDATE: 'graph:update',
+  /** グラフデータに差分を適用 */
+  GRAPH_DELTA: 'graph:delta',
   /** ビュー設定のみを更新 */
   VIEW_UPDATE: 'view:update',
   /** 特定のノードにフォーカス */
@@ -27,7 +29,9 @@ export const WEBVIEW_TO_EXTENSION = {
   /** Webview初期化完了通知 */
   READY: 'ready',
   /** ノードクリック時のファイルオープン要求 */
-  FOCUS_NODE: 'focusNode'
+  FOCUS_NODE: 'focusNode',
+  /** 集約ノード（パッケージ・モジュール）クリック時の展開要求 */
+  EXPAND_NODE: 'expandNode'
 };
 
 /**